@@ -0,0 +1,63 @@
+package gitlet;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures storing a file as a blob, by the size of the file: one pass
+ *  that hashes it, compresses it and writes it to a temporary object.
+ *  The file never changes, so after the first store each one finds the
+ *  blob already stored and discards its temporary object instead of
+ *  moving it into place.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlobIngestBenchmark {
+    /** The size of the file in bytes. */
+    @Param({"1024", "65536", "1048576", "16777216"})
+    int size;
+
+    private SyntheticRepo repo;
+    private File file;
+
+    @Setup
+    public void setUp() {
+        repo = new SyntheticRepo(false);
+        Random random = new Random(size);
+        StringBuilder text = new StringBuilder(size);
+        while (text.length() < size) {
+            text.append(random.nextInt(1 << 20)).append(random.nextBoolean() ? ' ' : '\n');
+        }
+        text.setLength(size);
+        repo.write("blob.txt", text.toString());
+        file = repo.file("blob.txt");
+    }
+
+    @TearDown
+    public void tearDown() {
+        repo.delete();
+    }
+
+    @Benchmark
+    public String ingest() {
+        return new Blob(file).getID();
+    }
+}
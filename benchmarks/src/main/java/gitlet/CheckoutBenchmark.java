@@ -0,0 +1,62 @@
+package gitlet;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures checking out a branch whose every file differs from the
+ *  current one, by the number of files, switching back and forth between
+ *  two branches.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CheckoutBenchmark {
+    /** The number of files on each branch. */
+    @Param({"100", "1000", "10000"})
+    int files;
+
+    private SyntheticRepo repo;
+    /** Whether the branch other is checked out. */
+    private boolean onOther;
+
+    @Setup
+    public void setUp() {
+        repo = new SyntheticRepo(false);
+        repo.writeFiles(files, "master");
+        repo.run("add", "src");
+        repo.run("commit", "master files");
+        repo.run("branch", "other");
+        repo.run("checkout", "other");
+        repo.writeFiles(files, "other");
+        repo.run("add", "src");
+        repo.run("commit", "other files");
+        onOther = true;
+    }
+
+    @TearDown
+    public void tearDown() {
+        repo.delete();
+    }
+
+    @Benchmark
+    public void checkout() {
+        repo.run("checkout", onOther ? "master" : "other");
+        onOther = !onOther;
+    }
+}
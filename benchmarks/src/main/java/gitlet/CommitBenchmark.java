@@ -0,0 +1,68 @@
+package gitlet;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures committing one staged change, by the number of files tracked.
+ *  The change is made and staged before each commit, outside the time
+ *  measured.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommitBenchmark {
+    /** The number of files tracked. */
+    @Param({"100", "1000", "10000"})
+    int files;
+
+    /** Whether commits flush what they write to disk. */
+    @Param({"false"})
+    boolean fsync;
+
+    private SyntheticRepo repo;
+    /** The number of commits made so far. */
+    private int commits;
+
+    @Setup
+    public void setUp() {
+        repo = new SyntheticRepo(fsync);
+        repo.writeFiles(files, "initial");
+        repo.run("add", "src");
+        repo.run("commit", "initial files");
+    }
+
+    @Setup(Level.Invocation)
+    public void stageChange() {
+        String path = SyntheticRepo.path(commits % files);
+        repo.write(path, "changed by commit " + commits + "\n");
+        repo.run("add", path);
+    }
+
+    @TearDown
+    public void tearDown() {
+        repo.delete();
+    }
+
+    @Benchmark
+    public void commit() {
+        repo.run("commit", "commit " + commits);
+        commits += 1;
+    }
+}
@@ -0,0 +1,68 @@
+package gitlet;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Formatter;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures computing the id of an object, by its size and the hash
+ *  algorithm, against SHA-1 computed as before HashEngine: a new digest per
+ *  id and a Formatter for the hexadecimal.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashBenchmark {
+    /** The size of the object in bytes. */
+    @Param({"64", "4096", "1048576"})
+    int size;
+
+    /** The hash algorithm, by its name in core.hash. */
+    @Param({"sha1", "sha256"})
+    String algorithm;
+
+    private byte[] data;
+    private HashEngine.Algorithm selected;
+
+    @Setup
+    public void setUp() {
+        data = new byte[size];
+        new Random(size).nextBytes(data);
+        selected = HashEngine.Algorithm.forName(algorithm);
+    }
+
+    @Benchmark
+    public String hash() {
+        MessageDigest md = HashEngine.digest(selected);
+        md.update(data);
+        return HashEngine.hex(md.digest());
+    }
+
+    @Benchmark
+    public String uncachedSha1() throws NoSuchAlgorithmException {
+        MessageDigest md = MessageDigest.getInstance("SHA-1");
+        md.update(data);
+        Formatter result = new Formatter();
+        for (byte b : md.digest()) {
+            result.format("%02x", b);
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,51 @@
+package gitlet;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures printing the history of HEAD with log, by its depth.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogBenchmark {
+    /** The number of commits in the history. */
+    @Param({"100", "1000", "10000"})
+    int depth;
+
+    private SyntheticRepo repo;
+
+    @Setup
+    public void setUp() {
+        repo = new SyntheticRepo(false);
+        repo.writeFiles(100, "initial");
+        repo.run("add", "src");
+        repo.commitHistory(depth, 100);
+    }
+
+    @TearDown
+    public void tearDown() {
+        repo.delete();
+    }
+
+    @Benchmark
+    public void log() {
+        repo.run("log");
+    }
+}
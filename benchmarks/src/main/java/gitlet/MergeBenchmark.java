@@ -0,0 +1,85 @@
+package gitlet;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures the three-way merge of two versions of a file, by its number
+ *  of lines.  Each version changes one line in a thousand, and the two
+ *  conflict on one line in a hundred thousand.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MergeBenchmark {
+    /** The number of lines in each version of the file. */
+    @Param({"10000", "1000000"})
+    int lines;
+
+    private Path dir;
+    private File base;
+    private File ours;
+    private File theirs;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("gitlet-bench");
+        base = dir.resolve("base").toFile();
+        ours = dir.resolve("ours").toFile();
+        theirs = dir.resolve("theirs").toFile();
+        writeVersion(base, -1, null);
+        writeVersion(ours, 100, "ours");
+        writeVersion(theirs, 600, "theirs");
+    }
+
+    @TearDown
+    public void tearDown() {
+        base.delete();
+        ours.delete();
+        theirs.delete();
+        dir.toFile().delete();
+    }
+
+    @Benchmark
+    public int merge() {
+        return ThreeWayMerge.merge(DiffPrinter.file(base), DiffPrinter.file(ours),
+                DiffPrinter.file(theirs), OutputStream.nullOutputStream());
+    }
+
+    /** Writes to FILE a generated text of LINES lines, in which line I is
+     *  changed to mention SIDE when I modulo 1000 is OFFSET, or when I
+     *  modulo 100000 is 7, unless SIDE is null. */
+    private void writeVersion(File file, int offset, String side) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < lines; i += 1) {
+                if (side != null && (i % 1000 == offset || i % 100000 == 7)) {
+                    out.write("line " + i + " changed by " + side + "\n");
+                } else {
+                    out.write("line " + i + ": the quick brown fox jumps over the lazy dog\n");
+                }
+            }
+        }
+    }
+}
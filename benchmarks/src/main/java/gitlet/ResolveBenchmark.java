@@ -0,0 +1,66 @@
+package gitlet;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures reading a commit by an abbreviated id with readCommitAb, by
+ *  the number of commits and the length of the abbreviation.  Each call
+ *  resolves the next of the commits' abbreviations, skipping those that
+ *  are ambiguous.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResolveBenchmark {
+    /** The number of commits in the repository. */
+    @Param({"1000", "10000"})
+    int commits;
+
+    /** The number of hexadecimal digits of each abbreviation. */
+    @Param({"7", "40"})
+    int prefix;
+
+    private SyntheticRepo repo;
+    /** The abbreviations resolved, in turn. */
+    private String[] abbreviations;
+    /** The index of the abbreviation resolved next. */
+    private int next;
+
+    @Setup
+    public void setUp() {
+        repo = new SyntheticRepo(false);
+        repo.writeFiles(100, "initial");
+        repo.run("add", "src");
+        abbreviations = repo.commitHistory(commits, 100).stream().map(id -> id.substring(0, prefix))
+                .filter(abbreviation -> CommitIndex.resolve(abbreviation, 2).size() == 1)
+                .toArray(String[]::new);
+    }
+
+    @TearDown
+    public void tearDown() {
+        repo.delete();
+    }
+
+    @Benchmark
+    public Commit resolve() {
+        String abbreviation = abbreviations[next];
+        next = (next + 1) % abbreviations.length;
+        return Commit.readCommitAb(abbreviation);
+    }
+}
@@ -0,0 +1,109 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/** A repository in a temporary directory, built for a benchmark.
+ *
+ *  Commands run in this JVM through Main.run, as the server runs them, so
+ *  what a benchmark measures is the command and not the JVM starting.
+ *  While the repository exists, what commands print is discarded.  Flushes
+ *  to disk are off unless asked for, so that results measure gitlet rather
+ *  than the disk.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class SyntheticRepo {
+    /** The number of files put in each directory by writeFiles. */
+    private static final int FILES_PER_DIRECTORY = 100;
+
+    /** The working directory of the repository. */
+    private final Path dir;
+    /** Where commands printed to before the repository was made. */
+    private final PrintStream standardOut = System.out;
+
+    /** Makes an empty repository, flushing what commands write to disk if
+     *  FSYNC. */
+    SyntheticRepo(boolean fsync) {
+        try {
+            dir = Files.createTempDirectory("gitlet-bench");
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        Repository.setupRepository(dir.toString());
+        run("init");
+        run("config", "core.fsync", String.valueOf(fsync));
+    }
+
+    /** Runs the gitlet command COMMAND in this repository. */
+    void run(String... command) {
+        String[] args = new String[command.length + 1];
+        args[0] = dir.toString();
+        System.arraycopy(command, 0, args, 1, command.length);
+        Main.run(args);
+    }
+
+    /** Returns the file at PATH in the working directory. */
+    File file(String path) {
+        return dir.resolve(path).toFile();
+    }
+
+    /** Writes CONTENTS to the file at PATH, creating its directories. */
+    void write(String path, String contents) {
+        File file = file(path);
+        file.getParentFile().mkdirs();
+        Utils.writeContents(file, contents);
+    }
+
+    /** Returns the path of file I of those written by writeFiles. */
+    static String path(int i) {
+        return "src/d" + (i / FILES_PER_DIRECTORY) + "/f" + i + ".txt";
+    }
+
+    /** Writes COUNT files of a few lines each under src, in directories of
+     *  FILES_PER_DIRECTORY files, their contents depending on VERSION. */
+    void writeFiles(int count, String version) {
+        for (int i = 0; i < count; i += 1) {
+            write(path(i), "file " + i + "\nversion " + version + "\n"
+                    + "the quick brown fox jumps over the lazy dog\n");
+        }
+    }
+
+    /** Commits a history of DEPTH commits, each changing one of the files
+     *  of writeFiles, of which there are FILES, and returns their ids. */
+    List<String> commitHistory(int depth, int files) {
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < depth; i += 1) {
+            String path = path(i % files);
+            write(path, "file " + (i % files) + "\ncommit " + i + "\n");
+            run("add", path);
+            run("commit", "commit " + i);
+            result.add(head());
+        }
+        return result;
+    }
+
+    /** Returns the id of the commit at HEAD. */
+    String head() {
+        return Utils.readContentsAsString(dir.resolve(".gitlet").resolve("HEAD").toFile());
+    }
+
+    /** Deletes the repository and lets commands print again. */
+    void delete() {
+        System.setOut(standardOut);
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+}
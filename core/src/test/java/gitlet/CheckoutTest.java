@@ -0,0 +1,97 @@
+package gitlet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Tests of checkout, reset and merge replacing files by directories and
+ *  directories by files.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class CheckoutTest {
+    /** The message of the error for an untracked file in the way. */
+    private static final String IN_THE_WAY =
+            "There is an untracked file in the way; delete it, or add and commit it first.";
+
+    /** Makes, in a new repository in DIR, a commit on master tracking the
+     *  file x/y, then a branch other whose commit replaces it by the file x,
+     *  and returns the repository with master checked out. */
+    private static TestRepository fileReplacesDirectory(Path dir) {
+        TestRepository repo = TestRepository.init(dir);
+        repo.commit("x/y", "in a directory\n", "directory");
+        repo.run("branch", "other");
+        repo.run("checkout", "other");
+        repo.run("rm", "x/y");
+        repo.commit("x", "a file\n", "file");
+        repo.run("checkout", "master");
+        return repo;
+    }
+
+    @Test
+    void checkoutSwapsFilesAndDirectories(@TempDir Path dir) {
+        TestRepository repo = fileReplacesDirectory(dir);
+        assertTrue(repo.file("x").isDirectory());
+        assertEquals("in a directory\n", repo.read("x/y"));
+        assertEquals("", repo.run("checkout", "other"));
+        assertTrue(repo.file("x").isFile());
+        assertEquals("a file\n", repo.read("x"));
+        repo.run("checkout", "master");
+        assertEquals("in a directory\n", repo.read("x/y"));
+    }
+
+    @Test
+    void resetSwapsFilesAndDirectories(@TempDir Path dir) {
+        TestRepository repo = fileReplacesDirectory(dir);
+        String master = repo.head();
+        repo.run("checkout", "other");
+        String other = repo.head();
+        assertEquals("", repo.run("reset", master));
+        assertEquals("in a directory\n", repo.read("x/y"));
+        repo.run("reset", other);
+        assertEquals("a file\n", repo.read("x"));
+    }
+
+    @Test
+    void untrackedFilesInsideADirectoryAreInTheWay(@TempDir Path dir) {
+        TestRepository repo = fileReplacesDirectory(dir);
+        repo.write("x/untracked", "mine\n");
+        GitletException excp = assertThrows(GitletException.class,
+                () -> repo.run("checkout", "other"));
+        assertEquals(IN_THE_WAY, excp.getMessage());
+        assertEquals("in a directory\n", repo.read("x/y"));
+        assertEquals("mine\n", repo.read("x/untracked"));
+    }
+
+    @Test
+    void untrackedFilesAboveAPathAreInTheWay(@TempDir Path dir) {
+        TestRepository repo = fileReplacesDirectory(dir);
+        repo.run("checkout", "other");
+        repo.run("branch", "third");
+        repo.run("checkout", "third");
+        repo.run("rm", "x");
+        repo.commit("z/w", "deeper\n", "third");
+        repo.run("checkout", "other");
+        repo.write("z", "in the way\n");
+        GitletException excp = assertThrows(GitletException.class,
+                () -> repo.run("checkout", "third"));
+        assertEquals(IN_THE_WAY, excp.getMessage());
+        assertEquals("in the way\n", repo.read("z"));
+    }
+
+    @Test
+    void mergeReplacesADirectoryByAFile(@TempDir Path dir) {
+        TestRepository repo = fileReplacesDirectory(dir);
+        repo.commit("unrelated.txt", "elsewhere\n", "unrelated");
+        repo.run("merge", "other");
+        assertTrue(repo.file("x").isFile());
+        assertEquals("a file\n", repo.read("x"));
+        assertEquals("elsewhere\n", repo.read("unrelated.txt"));
+        assertFalse(repo.run("status").contains("x/y"));
+    }
+}
@@ -0,0 +1,191 @@
+package gitlet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Tests of the compression codecs and of the headers of stored objects.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class CodecTest {
+    /** Returns inputs of many shapes: empty, tiny, repetitive, random, and
+     *  longer than an LZ block. */
+    private static List<byte[]> samples() {
+        Random random = new Random(3);
+        byte[] noise = new byte[100_000];
+        random.nextBytes(noise);
+        byte[] runs = new byte[3 * LzCodec.BLOCK_SIZE + 17];
+        Arrays.fill(runs, (byte) 'a');
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20_000; i += 1) {
+            text.append("line ").append(i % 97).append(" of some text that repeats a lot\n");
+        }
+        return List.of(new byte[0], "x".getBytes(StandardCharsets.UTF_8),
+                "hello, world".getBytes(StandardCharsets.UTF_8),
+                text.toString().getBytes(StandardCharsets.UTF_8), noise, runs);
+    }
+
+    /** Returns DATA encoded with CODEC. */
+    private static byte[] encode(Codec codec, byte[] data) throws IOException {
+        ByteArrayOutputStream stored = new ByteArrayOutputStream();
+        try (OutputStream out = codec.encode(stored)) {
+            out.write(data);
+        }
+        return stored.toByteArray();
+    }
+
+    /** Returns STORED decoded with CODEC. */
+    private static byte[] decode(Codec codec, byte[] stored) throws IOException {
+        try (InputStream in = codec.decode(new ByteArrayInputStream(stored))) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    void everyCodecRoundTrips() throws IOException {
+        for (Codec codec : Codec.all()) {
+            for (byte[] sample : samples()) {
+                assertArrayEquals(sample, decode(codec, encode(codec, sample)),
+                        codec.name() + " on " + sample.length + " bytes");
+            }
+        }
+    }
+
+    @Test
+    void byteAtATimeWritesRoundTrip() throws IOException {
+        byte[] sample = samples().get(3);
+        for (Codec codec : Codec.all()) {
+            ByteArrayOutputStream stored = new ByteArrayOutputStream();
+            try (OutputStream out = codec.encode(stored)) {
+                for (byte b : Arrays.copyOf(sample, 2 * LzCodec.BLOCK_SIZE + 3)) {
+                    out.write(b);
+                }
+            }
+            assertArrayEquals(Arrays.copyOf(sample, 2 * LzCodec.BLOCK_SIZE + 3),
+                    decode(codec, stored.toByteArray()), codec.name());
+        }
+    }
+
+    @Test
+    void compressingCodecsShrinkText() throws IOException {
+        byte[] text = samples().get(3);
+        assertTrue(encode(Codec.DEFLATE, text).length < text.length / 4);
+        assertTrue(encode(Codec.LZ, text).length < text.length / 2);
+    }
+
+    @Test
+    void lzKeepsIncompressibleBlocksAsTheyAre() throws IOException {
+        byte[] noise = samples().get(4);
+        int blocks = noise.length / LzCodec.BLOCK_SIZE + 1;
+        assertTrue(encode(Codec.LZ, noise).length <= noise.length + 16 * blocks);
+    }
+
+    @Test
+    void lzBlocksRoundTripAndRejectCorruption() throws IOException {
+        byte[] text = Arrays.copyOf(samples().get(3), LzCodec.BLOCK_SIZE);
+        byte[] compressed = new byte[LzCodec.maxCompressedLength(text.length)];
+        int length = LzCodec.compress(text, text.length, compressed, new int[1 << 14]);
+        byte[] result = new byte[text.length];
+        LzCodec.decompress(compressed, length, result, text.length);
+        assertArrayEquals(text, result);
+        byte[] longer = new byte[text.length + 1];
+        assertThrows(IOException.class,
+                () -> LzCodec.decompress(compressed, length, longer, longer.length));
+    }
+
+    @Test
+    void lzRejectsCorruptBlocksWithIOException() throws IOException {
+        byte[] text = Arrays.copyOf(samples().get(3), 4096);
+        byte[] compressed = new byte[LzCodec.maxCompressedLength(text.length)];
+        int length = LzCodec.compress(text, text.length, compressed, new int[1 << 14]);
+        byte[] result = new byte[text.length];
+        for (int cut = 1; cut < length; cut += 1) {
+            byte[] truncated = Arrays.copyOf(compressed, cut);
+            assertThrows(IOException.class,
+                    () -> LzCodec.decompress(truncated, truncated.length, result, result.length));
+        }
+        byte[] farOffset = {0x10, 'a', (byte) 0xff, (byte) 0xff};
+        assertThrows(IOException.class,
+                () -> LzCodec.decompress(farOffset, farOffset.length, result, 5));
+        byte[] longMatch = {0x1f, 'a', 0x01, 0x00, (byte) 0xff};
+        assertThrows(IOException.class,
+                () -> LzCodec.decompress(longMatch, longMatch.length, result, result.length));
+        Random random = new Random(3);
+        for (int round = 0; round < 2000; round += 1) {
+            byte[] corrupt = Arrays.copyOf(compressed, length);
+            corrupt[random.nextInt(length)] = (byte) random.nextInt(256);
+            try {
+                LzCodec.decompress(corrupt, corrupt.length, result, result.length);
+            } catch (IOException excp) {
+                // Rejecting the block is right; any other exception fails the test
+            }
+        }
+    }
+
+    @Test
+    void codecsAreFoundByIdAndName() {
+        for (Codec codec : Codec.all()) {
+            assertSame(codec, Codec.forId(codec.id()));
+            assertSame(codec, Codec.forName(codec.name()));
+        }
+        assertNull(Codec.forName("zstd"));
+        assertThrows(GitletException.class, () -> Codec.forId((byte) 99));
+    }
+
+    @Test
+    void headersRecordTheCodec() throws IOException {
+        byte[] sample = samples().get(3);
+        for (Codec codec : Codec.all()) {
+            ByteArrayOutputStream stored = new ByteArrayOutputStream();
+            stored.write(new byte[] {'g', 'l', 'o', codec.id()});
+            try (OutputStream out = codec.encode(stored)) {
+                out.write(sample);
+            }
+            InputStream in = new BufferedInputStream(new ByteArrayInputStream(stored.toByteArray()));
+            assertSame(codec, ObjectStore.readHeader(in));
+            assertArrayEquals(sample, ObjectStore.decode(
+                    new ByteArrayInputStream(stored.toByteArray())).readAllBytes());
+        }
+    }
+
+    @Test
+    void objectsWithoutHeadersAreReadAsTheyAre() throws IOException {
+        byte[] legacy = {(byte) 0xac, (byte) 0xed, 0, 5, 1, 2, 3};
+        InputStream in = new BufferedInputStream(new ByteArrayInputStream(legacy));
+        assertNull(ObjectStore.readHeader(in));
+        assertArrayEquals(legacy, in.readAllBytes());
+        assertArrayEquals(legacy, ObjectStore.decode(new ByteArrayInputStream(legacy)).readAllBytes());
+    }
+
+    @Test
+    void storedObjectsUseTheConfiguredCodec(@TempDir Path dir) {
+        TestRepository repo = TestRepository.init(dir);
+        for (Codec codec : Codec.all()) {
+            repo.run("config", "core.compression", codec.name());
+            String contents = codec.name() + " contents\n".repeat(100);
+            repo.write(codec.name() + ".txt", contents);
+            String id = new Blob(repo.file(codec.name() + ".txt")).getID();
+            assertSame(codec, ObjectStore.storedCodec(ObjectStore.Kind.BLOB, id));
+            assertEquals(contents, new String(ObjectStore.read(ObjectStore.Kind.BLOB, id),
+                    StandardCharsets.UTF_8));
+        }
+    }
+}
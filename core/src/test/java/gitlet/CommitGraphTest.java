@@ -0,0 +1,149 @@
+package gitlet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Tests of merge bases and messages found through the commit-graph.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class CommitGraphTest {
+    /** Makes COUNT commits on the current branch of REPO, each changing the
+     *  file PATH, and returns their ids in order. */
+    private static List<String> history(TestRepository repo, String path, int count) {
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < count; i += 1) {
+            result.add(repo.commit(path, path + " " + i + "\n", path + " " + i));
+        }
+        return result;
+    }
+
+    @Test
+    void baseOfAncestorIsTheAncestor(@TempDir Path dir) {
+        TestRepository repo = TestRepository.init(dir);
+        List<String> commits = history(repo, "a.txt", 10);
+        assertEquals(commits.get(3), CommitGraph.mergeBase(commits.get(3), commits.get(9)));
+        assertEquals(commits.get(3), CommitGraph.mergeBase(commits.get(9), commits.get(3)));
+    }
+
+    @Test
+    void baseOfCommitWithItselfIsItself(@TempDir Path dir) {
+        TestRepository repo = TestRepository.init(dir);
+        String head = history(repo, "a.txt", 3).get(2);
+        assertEquals(head, CommitGraph.mergeBase(head, head));
+    }
+
+    @Test
+    void baseOfBranchesIsTheBranchPoint(@TempDir Path dir) {
+        TestRepository repo = TestRepository.init(dir);
+        String fork = history(repo, "a.txt", 3).get(2);
+        repo.run("branch", "side");
+        String master = history(repo, "a.txt", 5).get(4);
+        repo.run("checkout", "side");
+        String side = history(repo, "b.txt", 2).get(1);
+        assertEquals(fork, CommitGraph.mergeBase(master, side));
+        assertEquals(fork, CommitGraph.mergeBase(side, master));
+    }
+
+    @Test
+    void baseAfterMergeIsTheMergedCommit(@TempDir Path dir) {
+        TestRepository repo = TestRepository.init(dir);
+        history(repo, "a.txt", 2);
+        repo.run("branch", "side");
+        history(repo, "a.txt", 2);
+        repo.run("checkout", "side");
+        String merged = history(repo, "b.txt", 2).get(1);
+        repo.run("checkout", "master");
+        repo.run("merge", "side");
+        String master = history(repo, "a.txt", 3).get(2);
+        repo.run("checkout", "side");
+        String side = history(repo, "b.txt", 3).get(2);
+        assertEquals(merged, CommitGraph.mergeBase(master, side));
+    }
+
+    @Test
+    void crissCrossMergesHaveALatestBase(@TempDir Path dir) {
+        TestRepository repo = TestRepository.init(dir);
+        history(repo, "a.txt", 1);
+        repo.run("branch", "side");
+        String ours = history(repo, "a.txt", 1).get(0);
+        repo.run("branch", "ours");
+        repo.run("checkout", "side");
+        String theirs = history(repo, "b.txt", 1).get(0);
+        repo.run("checkout", "master");
+        repo.run("merge", "side");
+        String master = repo.head();
+        repo.run("checkout", "side");
+        repo.run("merge", "ours");
+        String side = repo.head();
+        String base = CommitGraph.mergeBase(master, side);
+        assertTrue(Set.of(ours, theirs).contains(base), base);
+        assertEquals(base, CommitGraph.mergeBase(side, master));
+    }
+
+    @Test
+    void basesAreFoundThroughARewrittenIndex(@TempDir Path dir) {
+        TestRepository repo = TestRepository.init(dir);
+        List<String> commits = history(repo, "a.txt", 40);
+        repo.run("branch", "side");
+        assertTrue(repo.file(".gitlet/commit-graph-index").delete());
+        CommitGraph.reset();
+        assertEquals(commits.get(7), CommitGraph.mergeBase(commits.get(7), commits.get(39)));
+        assertTrue(repo.file(".gitlet/commit-graph-index").isFile());
+        List<String> master = history(repo, "a.txt", 5);
+        repo.run("checkout", "side");
+        List<String> side = history(repo, "b.txt", 5);
+        for (int i = 0; i < commits.size(); i += 1) {
+            assertEquals(commits.get(i), CommitGraph.mergeBase(commits.get(i), side.get(4)));
+        }
+        assertEquals(commits.get(39), CommitGraph.mergeBase(master.get(4), side.get(4)));
+    }
+
+    @Test
+    void basesAreFoundThroughARebuiltGraph(@TempDir Path dir) {
+        TestRepository repo = TestRepository.init(dir);
+        List<String> commits = history(repo, "a.txt", 20);
+        CommitGraph.rebuild();
+        CommitGraph.reset();
+        assertFalse(repo.file(".gitlet/commit-graph.tmp").exists());
+        assertFalse(repo.file(".gitlet/commit-messages.tmp").exists());
+        assertFalse(repo.file(".gitlet/commit-graph-index").exists());
+        assertEquals(commits.get(5), CommitGraph.mergeBase(commits.get(5), commits.get(19)));
+        assertTrue(repo.file(".gitlet/commit-graph").delete());
+        CommitGraph.reset();
+        assertEquals(commits.get(11), CommitGraph.mergeBase(commits.get(11), commits.get(19)));
+        assertTrue(repo.file(".gitlet/commit-graph").isFile());
+    }
+
+    @Test
+    void messageOffsetsBeyondTheMessagesAreCorrupt(@TempDir Path dir) throws IOException {
+        TestRepository repo = TestRepository.init(dir);
+        history(repo, "a.txt", 2);
+        CommitGraph.reset();
+        int count = CommitGraph.size();
+        assertEquals("a.txt 1", CommitGraph.message(count - 1));
+        File graph = repo.file(".gitlet/commit-graph");
+        long rowLength = (graph.length() - 12) / count;
+        try (RandomAccessFile out = new RandomAccessFile(graph, "rw")) {
+            out.seek(12 + (count - 1) * rowLength + HashEngine.rawIdLength() + 20);
+            out.writeLong(1L << 32);
+        }
+        CommitGraph.reset();
+        assertEquals(count, CommitGraph.size());
+        GitletException excp = assertThrows(GitletException.class,
+                () -> CommitGraph.message(count - 1));
+        assertEquals("Corrupt commit-graph.", excp.getMessage());
+    }
+}
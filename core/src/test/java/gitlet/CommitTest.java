@@ -0,0 +1,113 @@
+package gitlet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Tests of the binary encoding of commits.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class CommitTest {
+    /** Asserts that COMMIT decodes from its encoding unchanged, under the id
+     *  its encoding hashes to, and returns the encoding. */
+    private static byte[] assertRoundTrip(Commit commit) {
+        byte[] data = commit.encode();
+        assertEquals(HashEngine.hash(data), commit.getID());
+        Commit decoded = Commit.decode(commit.getID(), data);
+        assertEquals(commit.getID(), decoded.getID());
+        assertEquals(commit.getMessage(), decoded.getMessage());
+        assertEquals(commit.getTimestamp(), decoded.getTimestamp());
+        assertEquals(commit.getParentIds(), decoded.getParentIds());
+        assertEquals(commit.getTree(), decoded.getTree());
+        assertArrayEquals(data, decoded.encode());
+        return data;
+    }
+
+    @Test
+    void commitsRoundTrip(@TempDir Path dir) {
+        TestRepository repo = TestRepository.init(dir);
+        String root = repo.head();
+        String first = repo.commit("a.txt", "a\n", "first");
+        String tree = Commit.readCommit(first).getTree();
+        assertRoundTrip(Commit.readCommit(root));
+        assertRoundTrip(new Commit("plain", new Date(1234567890123L), List.of(first), tree));
+        assertRoundTrip(new Commit("merge", new Date(-1), List.of(first, root), tree));
+        assertRoundTrip(new Commit("多字节 message ✓\nwith two lines", new Date(0), List.of(), tree));
+        assertRoundTrip(new Commit("", new Date(42), List.of(root), tree));
+    }
+
+    @Test
+    void encodingHasTheDocumentedLayout(@TempDir Path dir) {
+        TestRepository repo = TestRepository.init(dir);
+        String root = repo.head();
+        String first = repo.commit("a.txt", "a\n", "first");
+        String tree = Commit.readCommit(first).getTree();
+        Commit merge = new Commit("merge", new Date(99), List.of(first, root), tree);
+        ByteBuffer data = ByteBuffer.wrap(merge.encode());
+        assertEquals(1, data.get());
+        assertEquals(99, data.getLong());
+        assertEquals(2, data.get());
+        for (String id : List.of(first, root, tree)) {
+            byte[] rawId = new byte[20];
+            data.get(rawId);
+            assertArrayEquals(Utils.toRawId(id), rawId);
+        }
+        assertEquals("merge".length(), data.getInt());
+        byte[] message = new byte[data.remaining()];
+        data.get(message);
+        assertEquals("merge", new String(message, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void sha256RepositoriesEncodeLongerIds(@TempDir Path dir) {
+        TestRepository repo = TestRepository.init(dir, "--hash", "sha256");
+        String first = repo.commit("a.txt", "a\n", "first");
+        assertEquals(64, first.length());
+        Commit commit = Commit.readCommit(first);
+        byte[] data = assertRoundTrip(commit);
+        assertEquals(1 + 8 + 1 + 2 * 32 + 4 + "first".length(), data.length);
+    }
+
+    @Test
+    void serializedCommitsAreRejected(@TempDir Path dir) {
+        TestRepository.init(dir);
+        byte[] serialized = {(byte) 0xac, (byte) 0xed, 0, 5, 0x73, 0x72};
+        assertThrows(GitletException.class, () -> Commit.decode("0".repeat(40), serialized));
+    }
+
+    @Test
+    void commitsHaveAtMostTwoParents(@TempDir Path dir) {
+        TestRepository repo = TestRepository.init(dir);
+        String root = repo.head();
+        String tree = Commit.readCommit(root).getTree();
+        assertThrows(GitletException.class,
+                () -> new Commit("octopus", new Date(), List.of(root, root, root), tree));
+    }
+
+    @Test
+    void indexesRecordCommitsOnlyWhenTheCommandCommits(@TempDir Path dir) {
+        TestRepository repo = TestRepository.init(dir);
+        String root = repo.head();
+        String tree = Commit.readCommit(root).getTree();
+        Commit commit = new Commit("never committed", new Date(7), List.of(root), tree);
+        long logged = repo.file(".gitlet/message-index.log").length();
+        commit.saveCommit();
+        Transaction.abort();
+        CommitIndex.reset();
+        assertEquals(List.of(), CommitIndex.resolve(commit.getID(), 2));
+        assertEquals(logged, repo.file(".gitlet/message-index.log").length());
+        String first = repo.commit("a.txt", "a\n", "first");
+        CommitIndex.reset();
+        assertEquals(List.of(first), CommitIndex.resolve(first.substring(0, 8), 2));
+        assertEquals(first + "\n", repo.run("find", "first"));
+    }
+}
@@ -0,0 +1,147 @@
+package gitlet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Tests of blob deltas and of their chains in packfiles.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class DeltaTest {
+    /** Returns LINES lines of generated text. */
+    private static String text(int lines) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < lines; i += 1) {
+            result.append("line ").append(i).append(": the quick brown fox jumps over the lazy dog\n");
+        }
+        return result.toString();
+    }
+
+    /** Asserts that the delta from BASE to TARGET rebuilds TARGET. */
+    private static byte[] assertRoundTrip(byte[] base, byte[] target) {
+        byte[] delta = Delta.compute(base, target);
+        assertArrayEquals(target, Delta.apply(base, delta));
+        return delta;
+    }
+
+    @Test
+    void editsGiveSmallDeltas() {
+        byte[] base = text(5000).getBytes(StandardCharsets.UTF_8);
+        String edited = text(5000).replace("line 10:", "LINE TEN:")
+                .replace("line 2500: the quick", "line 2500: a slow")
+                .replace("line 4000: the quick brown fox jumps over the lazy dog\n", "");
+        byte[] target = (edited + "one more line\n").getBytes(StandardCharsets.UTF_8);
+        byte[] delta = assertRoundTrip(base, target);
+        assertTrue(delta.length < target.length / 50, "delta of " + delta.length + " bytes");
+    }
+
+    @Test
+    void identicalInputsGiveOneCopy() {
+        byte[] base = text(1000).getBytes(StandardCharsets.UTF_8);
+        byte[] delta = assertRoundTrip(base, base.clone());
+        assertTrue(delta.length < 16, "delta of " + delta.length + " bytes");
+    }
+
+    @Test
+    void shortAndEmptyInputsRoundTrip() {
+        byte[] empty = new byte[0];
+        byte[] small = "tiny".getBytes(StandardCharsets.UTF_8);
+        byte[] large = text(100).getBytes(StandardCharsets.UTF_8);
+        assertRoundTrip(empty, empty);
+        assertRoundTrip(empty, large);
+        assertRoundTrip(large, empty);
+        assertRoundTrip(small, large);
+        assertRoundTrip(large, small);
+    }
+
+    @Test
+    void randomEditsRoundTrip() {
+        Random random = new Random(61);
+        for (int trial = 0; trial < 50; trial += 1) {
+            byte[] base = new byte[random.nextInt(20000)];
+            random.nextBytes(base);
+            ByteArrayOutputStream target = new ByteArrayOutputStream();
+            int at = 0;
+            while (at < base.length) {
+                int length = Math.min(base.length - at, 1 + random.nextInt(2000));
+                switch (random.nextInt(3)) {
+                    case 0:
+                        target.write(base, at, length);
+                        break;
+                    case 1:
+                        byte[] inserted = new byte[random.nextInt(100)];
+                        random.nextBytes(inserted);
+                        target.writeBytes(inserted);
+                        target.write(base, at, length);
+                        break;
+                    default:
+                        break;
+                }
+                at += length;
+            }
+            assertRoundTrip(base, target.toByteArray());
+        }
+    }
+
+    @Test
+    void applyRejectsAnotherBase() {
+        byte[] base = text(100).getBytes(StandardCharsets.UTF_8);
+        byte[] delta = Delta.compute(base, text(101).getBytes(StandardCharsets.UTF_8));
+        assertThrows(GitletException.class, () -> Delta.apply(Arrays.copyOf(base, 10), delta));
+    }
+
+    @Test
+    void varintsRoundTrip() {
+        long[] values = {0, 1, 127, 128, 300, 16383, 16384, Integer.MAX_VALUE, Long.MAX_VALUE, -1};
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (long value : values) {
+            Delta.writeVarint(out, value);
+        }
+        byte[] data = out.toByteArray();
+        int[] pos = {0};
+        for (long value : values) {
+            assertEquals(value, Delta.readVarint(data, pos));
+        }
+        assertEquals(data.length, pos[0]);
+    }
+
+    @Test
+    void repackStoresVersionsAsDeltaChains(@TempDir Path dir) {
+        TestRepository repo = TestRepository.init(dir);
+        List<String> versions = new ArrayList<>();
+        String contents = text(2000);
+        for (int i = 0; i < 8; i += 1) {
+            contents = contents.replace("line " + (i * 200) + ":", "changed in version " + i + ":");
+            repo.commit("big.txt", contents, "version " + i);
+            versions.add(contents);
+        }
+        List<String> ids = new ArrayList<>();
+        for (String version : versions) {
+            repo.write("big.txt", version);
+            ids.add(Blob.hash(repo.file("big.txt")));
+        }
+        repo.run("repack");
+        ObjectStore.reset();
+        int deltas = 0;
+        for (int i = 0; i < ids.size(); i += 1) {
+            if (ObjectStore.isDelta(ObjectStore.Kind.BLOB, ids.get(i))) {
+                deltas += 1;
+            }
+            assertArrayEquals(versions.get(i).getBytes(StandardCharsets.UTF_8),
+                    ObjectStore.read(ObjectStore.Kind.BLOB, ids.get(i)));
+        }
+        assertTrue(deltas >= ids.size() - 1, deltas + " of " + ids.size() + " versions are deltas");
+    }
+}
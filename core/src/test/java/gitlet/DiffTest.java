@@ -0,0 +1,194 @@
+package gitlet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Tests of the Myers diff and of the unified format DiffPrinter prints.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class DiffTest {
+    /** Returns the lines of TEXT, each with its newline if it has one. */
+    private static List<String> split(String text) {
+        List<String> result = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < text.length(); i += 1) {
+            if (text.charAt(i) == '\n') {
+                result.add(text.substring(start, i + 1));
+                start = i + 1;
+            }
+        }
+        if (start < text.length()) {
+            result.add(text.substring(start));
+        }
+        return result;
+    }
+
+    /** Returns the lines Diff hashes for TEXT. */
+    private static Diff.Lines lines(String text) {
+        return Diff.Lines.read(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /** Returns the changes from OLDTEXT to NEWTEXT, asserting that they are
+     *  in order, are separated by unchanged lines, and turn OLDTEXT into
+     *  NEWTEXT when applied. */
+    private static List<Diff.Change> assertDiff(String oldText, String newText) {
+        List<Diff.Change> changes = Diff.changes(lines(oldText), lines(newText));
+        List<String> oldLines = split(oldText), newLines = split(newText);
+        StringBuilder applied = new StringBuilder();
+        int oldPos = 0, newPos = 0;
+        for (Diff.Change change : changes) {
+            assertTrue(change.oldStart < change.oldEnd || change.newStart < change.newEnd);
+            if (oldPos > 0 || newPos > 0) {
+                assertTrue(change.oldStart > oldPos && change.newStart > newPos);
+            }
+            assertEquals(change.oldStart - oldPos, change.newStart - newPos);
+            for (int i = oldPos; i < change.oldStart; i += 1) {
+                applied.append(oldLines.get(i));
+            }
+            for (int i = change.newStart; i < change.newEnd; i += 1) {
+                applied.append(newLines.get(i));
+            }
+            oldPos = change.oldEnd;
+            newPos = change.newEnd;
+        }
+        assertEquals(oldLines.size() - oldPos, newLines.size() - newPos);
+        for (int i = oldPos; i < oldLines.size(); i += 1) {
+            applied.append(oldLines.get(i));
+        }
+        assertEquals(newText, applied.toString());
+        return changes;
+    }
+
+    /** Asserts that CHANGE replaces old lines [OLDSTART, OLDEND) by new
+     *  lines [NEWSTART, NEWEND). */
+    private static void assertChange(Diff.Change change, int oldStart, int oldEnd,
+                                     int newStart, int newEnd) {
+        assertEquals(List.of(oldStart, oldEnd, newStart, newEnd),
+                List.of(change.oldStart, change.oldEnd, change.newStart, change.newEnd));
+    }
+
+    /** Returns a supplier opening TEXT, or null if TEXT is null. */
+    private static Supplier<InputStream> version(String text) {
+        if (text == null) {
+            return null;
+        }
+        return () -> new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Returns what DiffPrinter prints for the file f going from OLDTEXT to
+     *  NEWTEXT, either of which may be null for an absent version. */
+    private static String print(String oldText, String newText) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new DiffPrinter(out).print("f", version(oldText), version(newText));
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    /** Returns the lines "1" to "COUNT", replacing line i by REPLACEMENTS[i - 1]
+     *  where that is not null. */
+    private static String numbered(int count, String... replacements) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 1; i <= count; i += 1) {
+            String replacement = i <= replacements.length ? replacements[i - 1] : null;
+            result.append(replacement == null ? String.valueOf(i) : replacement).append('\n');
+        }
+        return result.toString();
+    }
+
+    @Test
+    void emptyAndNonEmptyInputs() {
+        assertEquals(List.of(), assertDiff("", ""));
+        assertChange(assertDiff("", "a\nb\n").get(0), 0, 0, 0, 2);
+        assertChange(assertDiff("a\nb\n", "").get(0), 0, 2, 0, 0);
+        assertEquals("--- /dev/null\n+++ b/f\n@@ -0,0 +1,2 @@\n+a\n+b\n", print(null, "a\nb\n"));
+        assertEquals("--- a/f\n+++ /dev/null\n@@ -1 +0,0 @@\n-a\n", print("a\n", null));
+        assertEquals("--- a/f\n+++ b/f\n@@ -0,0 +1 @@\n+a\n", print("", "a\n"));
+    }
+
+    @Test
+    void lastLineWithoutNewlineDiffers() {
+        List<Diff.Change> changes = assertDiff("a\nb", "a\nb\n");
+        assertEquals(1, changes.size());
+        assertChange(changes.get(0), 1, 2, 1, 2);
+        assertEquals("--- a/f\n+++ b/f\n@@ -1,2 +1,2 @@\n a\n-b\n"
+                + "\\ No newline at end of file\n+b\n", print("a\nb", "a\nb\n"));
+        assertEquals("--- a/f\n+++ b/f\n@@ -1,2 +1,2 @@\n a\n-b\n+c\n"
+                + "\\ No newline at end of file\n", print("a\nb\n", "a\nc"));
+        assertEquals(List.of(), assertDiff("a\nb", "a\nb"));
+    }
+
+    @Test
+    void identicalInputsHaveNoChanges() {
+        String text = numbered(1000);
+        assertEquals(List.of(), assertDiff(text, text));
+        assertEquals("", print(text, text));
+        assertEquals("", print("", ""));
+    }
+
+    @Test
+    void veryDifferentInputsStillDiffCorrectly() {
+        Random random = new Random(18);
+        int count = 8 * Diff.MIN_COST_LIMIT;
+        StringBuilder oldText = new StringBuilder(), newText = new StringBuilder();
+        for (int i = 0; i < count; i += 1) {
+            oldText.append((char) ('a' + random.nextInt(4))).append('\n');
+            newText.append((char) ('a' + random.nextInt(4))).append('\n');
+        }
+        List<Diff.Change> changes = assertDiff(oldText.toString(), newText.toString());
+        int edits = 0;
+        for (Diff.Change change : changes) {
+            edits += (change.oldEnd - change.oldStart) + (change.newEnd - change.newStart);
+        }
+        assertTrue(edits > 2 * Diff.MIN_COST_LIMIT, edits + " lines edited");
+    }
+
+    @Test
+    void nearbyChangesShareAHunk() {
+        String oldText = numbered(20);
+        String newText = numbered(20, "one", null, null, null, "five", null, null, null,
+                "nine", null, null, null, null, null, null, null, null, null, null, "twenty");
+        List<Diff.Change> changes = assertDiff(oldText, newText);
+        assertEquals(4, changes.size());
+        assertChange(changes.get(0), 0, 1, 0, 1);
+        assertChange(changes.get(3), 19, 20, 19, 20);
+        assertEquals("--- a/f\n+++ b/f\n"
+                + "@@ -1,12 +1,12 @@\n-1\n+one\n 2\n 3\n 4\n-5\n+five\n 6\n 7\n 8\n-9\n+nine\n"
+                + " 10\n 11\n 12\n"
+                + "@@ -17,4 +17,4 @@\n 17\n 18\n 19\n-20\n+twenty\n", print(oldText, newText));
+    }
+
+    @Test
+    void insertionsAtTheEndsOfAFile() {
+        String oldText = numbered(10);
+        String newText = "zero\n" + oldText + "eleven\n";
+        List<Diff.Change> changes = assertDiff(oldText, newText);
+        assertChange(changes.get(0), 0, 0, 0, 1);
+        assertChange(changes.get(1), 10, 10, 11, 12);
+        assertEquals("--- a/f\n+++ b/f\n"
+                + "@@ -1,3 +1,4 @@\n+zero\n 1\n 2\n 3\n"
+                + "@@ -8,3 +9,4 @@\n 8\n 9\n 10\n+eleven\n", print(oldText, newText));
+    }
+
+    @Test
+    void missingBlobsAreReportedAsErrors(@TempDir Path dir) {
+        TestRepository.init(dir);
+        String missing = "0".repeat(HashEngine.idLength());
+        DiffPrinter printer = new DiffPrinter(new ByteArrayOutputStream());
+        GitletException excp = assertThrows(GitletException.class,
+                () -> printer.print("f", DiffPrinter.blob(missing), version("a\n")));
+        assertEquals("Missing blob " + missing + ".", excp.getMessage());
+    }
+}
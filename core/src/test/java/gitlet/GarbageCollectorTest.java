@@ -0,0 +1,157 @@
+package gitlet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Tests of gc and repack.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class GarbageCollectorTest {
+    /** Makes, on a branch then removed, a commit adding the file PATH, and
+     *  returns its id.  Leaves master checked out. */
+    private static String abandonedCommit(TestRepository repo, String path) {
+        repo.run("branch", "doomed");
+        repo.run("checkout", "doomed");
+        String id = repo.commit(path, "work on " + path + "\n", "doomed work");
+        repo.run("checkout", "master");
+        repo.run("rm-branch", "doomed");
+        return id;
+    }
+
+    /** Sets the modification time of every file in the repository in DIR to
+     *  an hour ago, so that gc --grace 60 may remove any of them. */
+    private static void age(Path dir) throws IOException {
+        FileTime hourAgo = FileTime.fromMillis(System.currentTimeMillis() - 3_600_000);
+        try (Stream<Path> paths = Files.walk(dir.resolve(".gitlet"))) {
+            for (Path path : paths.toList()) {
+                Files.setLastModifiedTime(path, hourAgo);
+            }
+        }
+    }
+
+    /** Returns the messages of the commits log prints, most recent first. */
+    private static List<String> messages(String log) {
+        return Stream.of(log.split("\n\n"))
+                .map(entry -> entry.substring(entry.lastIndexOf('\n') + 1))
+                .toList();
+    }
+
+    /** Asserts that fsck of REPO finds nothing wrong. */
+    private static void assertClean(TestRepository repo) {
+        String fsck = repo.run("fsck");
+        assertTrue(fsck.startsWith("Checked ") && fsck.indexOf('\n') == fsck.length() - 1, fsck);
+    }
+
+    @Test
+    void unreachableObjectsAreRemoved(@TempDir Path dir) throws IOException {
+        TestRepository repo = TestRepository.init(dir);
+        repo.commit("a.txt", "a\n", "first");
+        String doomed = abandonedCommit(repo, "b.txt");
+        repo.write("staged.txt", "staged\n");
+        repo.run("add", "staged.txt");
+        String staged = Blob.hash(repo.file("staged.txt"));
+        age(dir);
+        assertTrue(repo.run("gc", "--grace", "60")
+                .startsWith("Removed 1 commits, 1 trees and 1 blobs, reclaiming "));
+        assertFalse(ObjectStore.contains(ObjectStore.Kind.COMMIT, doomed));
+        assertTrue(ObjectStore.contains(ObjectStore.Kind.BLOB, staged));
+        assertEquals(List.of("first", "initial commit"), messages(repo.run("log")));
+        assertEquals("Found no commit with that message.\n", repo.run("find", "doomed work"));
+        repo.run("commit", "second");
+        assertEquals("staged\n", repo.read("staged.txt"));
+        assertClean(repo);
+    }
+
+    @Test
+    void packedObjectsAreRemovedByRepacking(@TempDir Path dir) throws IOException {
+        TestRepository repo = TestRepository.init(dir);
+        repo.commit("a.txt", "a\n", "first");
+        String doomed = abandonedCommit(repo, "b.txt");
+        repo.run("repack");
+        age(dir);
+        assertTrue(repo.run("gc", "--grace", "60")
+                .startsWith("Removed 1 commits, 1 trees and 1 blobs, reclaiming "));
+        ObjectStore.reset();
+        assertFalse(ObjectStore.contains(ObjectStore.Kind.COMMIT, doomed));
+        assertEquals(List.of("first", "initial commit"), messages(repo.run("log")));
+        assertClean(repo);
+    }
+
+    @Test
+    void recentObjectsAndBranchesSurvive(@TempDir Path dir) {
+        TestRepository repo = TestRepository.init(dir);
+        repo.commit("a.txt", "a\n", "first");
+        String doomed = abandonedCommit(repo, "b.txt");
+        repo.run("branch", "kept");
+        assertEquals("Removed 0 commits, 0 trees and 0 blobs, reclaiming 0 bytes.\n", repo.run("gc"));
+        assertTrue(ObjectStore.contains(ObjectStore.Kind.COMMIT, doomed));
+        assertTrue(repo.file(".gitlet/packed-refs").isFile());
+        assertEquals(List.of(), Utils.plainFilenamesIn(repo.file(".gitlet/branches")));
+        repo.run("checkout", "kept");
+        assertEquals(List.of("first", "initial commit"), messages(repo.run("log")));
+    }
+
+    @Test
+    void repackRemovesNothingUntilItCommits(@TempDir Path dir) {
+        TestRepository repo = TestRepository.init(dir);
+        String head = repo.commit("a.txt", "a\n", "first");
+        File loose = ObjectStore.looseFile(ObjectStore.Kind.COMMIT, head);
+        ObjectStore.repack();
+        assertTrue(loose.isFile());
+        assertTrue(ObjectStore.contains(ObjectStore.Kind.COMMIT, head));
+        Transaction.abort();
+        ObjectStore.reset();
+        assertTrue(loose.isFile());
+        ObjectStore.repack();
+        Transaction.commit();
+        ObjectStore.reset();
+        assertFalse(loose.isFile());
+        assertTrue(ObjectStore.contains(ObjectStore.Kind.COMMIT, head));
+        assertEquals(List.of("first", "initial commit"), messages(repo.run("log")));
+        assertClean(repo);
+    }
+
+    @Test
+    void youngObjectsKeepTheirAgeWhenOldPacksAreRepacked(@TempDir Path dir) throws IOException {
+        TestRepository repo = TestRepository.init(dir);
+        repo.commit("a.txt", "a\n", "first");
+        String old = abandonedCommit(repo, "b.txt");
+        repo.run("repack");
+        age(dir);
+        String young = abandonedCommit(repo, "c.txt");
+        File loose = ObjectStore.looseFile(ObjectStore.Kind.COMMIT, young);
+        long stored = loose.lastModified();
+        assertTrue(repo.run("gc", "--grace", "60")
+                .startsWith("Removed 1 commits, 1 trees and 1 blobs, reclaiming "));
+        ObjectStore.reset();
+        assertFalse(ObjectStore.contains(ObjectStore.Kind.COMMIT, old));
+        assertTrue(loose.isFile());
+        assertEquals(stored, loose.lastModified());
+        assertEquals(List.of("first", "initial commit"), messages(repo.run("log")));
+    }
+
+    @Test
+    void storingAnObjectAgainFreshensIt(@TempDir Path dir) throws IOException {
+        TestRepository repo = TestRepository.init(dir);
+        repo.commit("a.txt", "a\n", "first");
+        age(dir);
+        String blob = Blob.hash(repo.file("a.txt"));
+        File loose = ObjectStore.looseFile(ObjectStore.Kind.BLOB, blob);
+        long aged = loose.lastModified();
+        repo.write("copy.txt", "a\n");
+        repo.run("add", "copy.txt");
+        assertTrue(loose.lastModified() > aged);
+    }
+}
@@ -0,0 +1,45 @@
+package gitlet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/** Tests of writing blobs out to working files.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class MaterializerTest {
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4})
+    void everyFileIsAttemptedBeforeTheFirstFailureIsReported(int threads, @TempDir Path dir) {
+        TestRepository repo = TestRepository.init(dir);
+        repo.run("config", "checkout.threads", String.valueOf(threads));
+        for (String name : new String[] {"a.txt", "b.txt", "c.txt", "d.txt"}) {
+            repo.write(name, "old " + name + "\n");
+            repo.run("add", name);
+        }
+        repo.run("commit", "old");
+        repo.run("branch", "other");
+        repo.run("checkout", "other");
+        for (String name : new String[] {"a.txt", "b.txt", "c.txt", "d.txt"}) {
+            repo.write(name, "new " + name + "\n");
+            repo.run("add", name);
+        }
+        repo.run("commit", "new");
+        String missingB = Blob.hash(repo.file("b.txt"));
+        String missingC = Blob.hash(repo.file("c.txt"));
+        repo.run("checkout", "master");
+        assertTrue(ObjectStore.looseFile(ObjectStore.Kind.BLOB, missingB).delete());
+        assertTrue(ObjectStore.looseFile(ObjectStore.Kind.BLOB, missingC).delete());
+        GitletException excp = assertThrows(GitletException.class,
+                () -> repo.run("checkout", "other"));
+        assertEquals("Could not write b.txt: missing blob " + missingB, excp.getMessage());
+        assertEquals("new a.txt\n", repo.read("a.txt"));
+        assertEquals("new d.txt\n", repo.read("d.txt"));
+    }
+}
@@ -0,0 +1,113 @@
+package gitlet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Tests of migrate against baseline-repo, a repository made by the version
+ *  of gitlet before the binary formats, whose .gitlet is kept as gitlet.
+ *  On master it holds the commits "initial commit", "first" and "second",
+ *  and d.txt staged; on side, "on side", which adds c.txt.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class MigrationTest {
+    /** The HEAD of baseline-repo before migration. */
+    private static final String OLD_HEAD = "a67c1799a66e328bcff66ccd3d1d8ed08eb24019";
+
+    /** Copies baseline-repo into DIR and returns it, not yet migrated. */
+    private static TestRepository baseline(Path dir) throws IOException, URISyntaxException {
+        Path source = Path.of(MigrationTest.class.getResource("/baseline-repo").toURI());
+        try (Stream<Path> paths = Files.walk(source)) {
+            paths.forEach(path -> {
+                String relative = source.relativize(path).toString();
+                if (relative.equals("gitlet") || relative.startsWith("gitlet/")) {
+                    relative = "." + relative;
+                }
+                try {
+                    if (Files.isDirectory(path)) {
+                        Files.createDirectories(dir.resolve(relative));
+                    } else {
+                        Files.copy(path, dir.resolve(relative));
+                    }
+                } catch (IOException excp) {
+                    throw new UncheckedIOException(excp);
+                }
+            });
+        }
+        return new TestRepository(dir);
+    }
+
+    /** Returns the messages of the commits log prints, most recent first. */
+    private static List<String> messages(String log) {
+        return Stream.of(log.split("\n\n"))
+                .map(entry -> entry.substring(entry.lastIndexOf('\n') + 1))
+                .toList();
+    }
+
+    @Test
+    void commandsWaitForMigration(@TempDir Path dir) throws Exception {
+        TestRepository repo = baseline(dir);
+        GitletException excp = assertThrows(GitletException.class, () -> repo.run("log"));
+        assertEquals("This repository uses an older format; run migrate first.", excp.getMessage());
+    }
+
+    @Test
+    void migrationKeepsHistoryBranchesAndStage(@TempDir Path dir) throws Exception {
+        TestRepository repo = baseline(dir);
+        assertEquals("Migrated 4 commits and 5 blobs.\n", repo.run("migrate"));
+        assertNotEquals(OLD_HEAD, repo.head());
+        assertEquals(List.of("second", "first", "initial commit"), messages(repo.run("log")));
+        String status = repo.run("status");
+        assertTrue(status.startsWith("=== Branches ===\n*master\nside\n\n"
+                + "=== Staged Files ===\nd.txt\n\n"), status);
+        assertTrue(repo.run("fsck").startsWith("Checked 13 objects"));
+        assertEquals("Repository is already in the current format.\n", repo.run("migrate"));
+    }
+
+    @Test
+    void migrationCutShortKeepsLegacyObjects(@TempDir Path dir) throws Exception {
+        baseline(dir);
+        Migration.run();
+        Transaction.abort();
+        TestRepository repo = new TestRepository(dir);
+        assertEquals(OLD_HEAD, repo.head());
+        assertTrue(ObjectStore.contains(ObjectStore.Kind.COMMIT, OLD_HEAD));
+        assertThrows(GitletException.class, () -> repo.run("log"));
+        assertEquals("Migrated 4 commits and 5 blobs.\n", repo.run("migrate"));
+        assertFalse(ObjectStore.contains(ObjectStore.Kind.COMMIT, OLD_HEAD));
+        assertEquals(List.of("second", "first", "initial commit"), messages(repo.run("log")));
+    }
+
+    @Test
+    void migratedCommitsCheckOutAndGrow(@TempDir Path dir) throws Exception {
+        TestRepository repo = baseline(dir);
+        repo.run("migrate");
+        repo.run("checkout", "side");
+        assertEquals("side file\n", repo.read("c.txt"));
+        assertEquals("hello again\n", repo.read("a.txt"));
+        assertEquals("world\n", repo.read("b.txt"));
+        assertEquals(List.of("on side", "second", "first", "initial commit"),
+                messages(repo.run("log")));
+        repo.commit("c.txt", "side file, changed\n", "after migration");
+        repo.run("checkout", "master");
+        repo.run("commit", "add d");
+        assertEquals("", repo.run("merge", "side"));
+        assertEquals("side file, changed\n", repo.read("c.txt"));
+        assertEquals("staged\n", repo.read("d.txt"));
+        assertEquals(List.of("Merged side into master.", "add d", "second", "first", "initial commit"),
+                messages(repo.run("log")));
+    }
+}
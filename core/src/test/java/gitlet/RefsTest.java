@@ -0,0 +1,96 @@
+package gitlet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Tests of branches in the packed-refs table.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class RefsTest {
+    /** The number of branches made beside master. */
+    private static final int BRANCHES = 300;
+
+    /** Returns the name of branch I, of a length varying with I. */
+    private static String name(int i) {
+        return "topic-" + "x".repeat(i % 7) + i + (i % 5 == 0 ? "-Fix" : "");
+    }
+
+    /** Makes BRANCHES branches in REPO, each at one of three commits, packs
+     *  them, and returns every branch's commit by name. */
+    private static TreeMap<String, String> packedBranches(TestRepository repo) {
+        List<String> commits = new ArrayList<>();
+        for (int i = 0; i < 3; i += 1) {
+            commits.add(repo.commit("a.txt", "version " + i + "\n", "commit " + i));
+        }
+        TreeMap<String, String> expected = new TreeMap<>();
+        expected.put("master", repo.head());
+        for (int i = 0; i < BRANCHES; i += 1) {
+            repo.run("reset", commits.get(i % 3));
+            repo.run("branch", name(i));
+            expected.put(name(i), commits.get(i % 3));
+        }
+        repo.run("reset", commits.get(2));
+        repo.run("gc");
+        assertTrue(repo.file(".gitlet/packed-refs").isFile());
+        assertEquals(List.of(), Utils.plainFilenamesIn(repo.file(".gitlet/branches")));
+        return expected;
+    }
+
+    @Test
+    void packedBranchesAreFound(@TempDir Path dir) {
+        TestRepository repo = TestRepository.init(dir);
+        TreeMap<String, String> expected = packedBranches(repo);
+        for (String name : expected.keySet()) {
+            assertEquals(expected.get(name), Refs.read(name), name);
+            assertTrue(Refs.exists(name), name);
+        }
+        assertEquals(expected, Refs.all());
+    }
+
+    @Test
+    void missingBranchesAreNotFound(@TempDir Path dir) {
+        TestRepository repo = TestRepository.init(dir);
+        packedBranches(repo);
+        for (String name : List.of("", "a", "master0", "topic-", "topic-1x", "zzz", "Master")) {
+            assertNull(Refs.read(name), name);
+            assertFalse(Refs.exists(name), name);
+        }
+    }
+
+    @Test
+    void looseBranchesOverridePackedOnes(@TempDir Path dir) {
+        TestRepository repo = TestRepository.init(dir);
+        packedBranches(repo);
+        repo.run("checkout", name(7));
+        String moved = repo.commit("b.txt", "b\n", "on a packed branch");
+        assertEquals(moved, Refs.read(name(7)));
+        assertTrue(repo.file(".gitlet/branches/" + name(7)).isFile());
+        repo.run("gc");
+        assertEquals(moved, Refs.read(name(7)));
+        assertFalse(repo.file(".gitlet/branches/" + name(7)).isFile());
+    }
+
+    @Test
+    void removingAPackedBranchRewritesTheTable(@TempDir Path dir) {
+        TestRepository repo = TestRepository.init(dir);
+        TreeMap<String, String> expected = packedBranches(repo);
+        for (int i = 0; i < BRANCHES; i += 3) {
+            repo.run("rm-branch", name(i));
+            expected.remove(name(i));
+        }
+        assertEquals(expected, Refs.all());
+        for (int i = 0; i < BRANCHES; i += 1) {
+            assertEquals(expected.get(name(i)), Refs.read(name(i)), name(i));
+        }
+    }
+}
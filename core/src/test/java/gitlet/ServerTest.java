@@ -0,0 +1,170 @@
+package gitlet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Tests of the serve daemon's request and response protocol.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class ServerTest {
+    /** Serves the repository in DIR over the standard streams, sending it
+     *  REQUESTS, and returns each response as its status, a space and the
+     *  output of its command. */
+    private static List<String> serve(Path dir, String requests) {
+        return serve(dir, new ByteArrayInputStream(requests.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /** Serves the repository in DIR over the standard streams, sending it
+     *  the requests read from REQUESTS, and returns each response as serve
+     *  does for a string of requests. */
+    private static List<String> serve(Path dir, InputStream requests) {
+        InputStream standardIn = System.in;
+        PrintStream standardOut = System.out;
+        ByteArrayOutputStream responses = new ByteArrayOutputStream();
+        System.setIn(requests);
+        System.setOut(new PrintStream(responses, true, StandardCharsets.UTF_8));
+        try {
+            Server.serve(new String[] {dir.toString(), "serve"});
+        } finally {
+            System.setIn(standardIn);
+            System.setOut(standardOut);
+        }
+        List<String> result = new ArrayList<>();
+        byte[] bytes = responses.toByteArray();
+        int at = 0;
+        while (at < bytes.length) {
+            int newline = at;
+            while (bytes[newline] != '\n') {
+                newline += 1;
+            }
+            String[] header = new String(bytes, at, newline - at, StandardCharsets.UTF_8).split(" ");
+            assertEquals(2, header.length);
+            assertTrue(header[0].equals("ok") || header[0].equals("error"), header[0]);
+            int length = Integer.parseInt(header[1]);
+            result.add(header[0] + " " + new String(bytes, newline + 1, length, StandardCharsets.UTF_8));
+            at = newline + 1 + length;
+        }
+        return result;
+    }
+
+    /** Returns a stream of the requests FIRST, then, once the server has
+     *  read all of them and asks for more, runs BETWEEN and continues with
+     *  the requests SECOND. */
+    private static InputStream pausing(String first, Runnable between, String second) {
+        return new InputStream() {
+            private ByteArrayInputStream current = new ByteArrayInputStream(first.getBytes(StandardCharsets.UTF_8));
+            private boolean paused;
+
+            @Override
+            public int read() {
+                byte[] b = new byte[1];
+                return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                int n = current.read(b, off, len);
+                if (n < 0 && !paused) {
+                    paused = true;
+                    between.run();
+                    current = new ByteArrayInputStream(second.getBytes(StandardCharsets.UTF_8));
+                    n = current.read(b, off, len);
+                }
+                return n;
+            }
+        };
+    }
+
+    /** Replaces OLD by NEW, of the same length, in the file at PATH, in place
+     *  and keeping its modification time, as a quick second process might. */
+    private static void rewriteInPlace(Path path, String old, String replacement) {
+        try {
+            FileTime modified = Files.getLastModifiedTime(path);
+            Files.writeString(path, Files.readString(path).replace(old, replacement));
+            Files.setLastModifiedTime(path, modified);
+        } catch (IOException excp) {
+            throw new UncheckedIOException(excp);
+        }
+    }
+
+    @Test
+    void wordsSplitAtSpacesOutsideQuotes() {
+        assertEquals(List.of("commit", "a message"), Server.split("commit \"a message\""));
+        assertEquals(List.of("add", "a.txt", "b.txt"), Server.split("  add\ta.txt   b.txt "));
+        assertEquals(List.of("say \"hi\" \\ there"), Server.split("\"say \\\"hi\\\" \\\\ there\""));
+        assertEquals(List.of("prefix-quoted part"), Server.split("prefix-\"quoted part\""));
+        assertEquals(List.of("find", ""), Server.split("find \"\""));
+        assertEquals(List.of("a\\b"), Server.split("a\\b"));
+        assertEquals(List.of(), Server.split("   "));
+    }
+
+    @Test
+    void failedCommandsDoNotStopLaterOnes(@TempDir Path dir) {
+        TestRepository repo = TestRepository.init(dir);
+        repo.write("a.txt", "hello\n");
+        List<String> responses = serve(dir, "add missing.txt\n"
+                + "\n"
+                + "add a.txt\n"
+                + "commit \"say \\\"hi\\\" twice\"\n"
+                + "checkout no-such-branch\n"
+                + "find \"say \\\"hi\\\" twice\"\n"
+                + "shutdown\n"
+                + "status\n");
+        assertEquals(6, responses.size(), responses.toString());
+        assertEquals("error File does not exist.\n", responses.get(0));
+        assertEquals("ok ", responses.get(1));
+        assertEquals("ok ", responses.get(2));
+        assertEquals("error No such branch exists.\n", responses.get(3));
+        assertEquals("ok " + repo.head() + "\n", responses.get(4));
+        assertEquals("ok ", responses.get(5));
+    }
+
+    @Test
+    void serveIsRefusedWhileServing(@TempDir Path dir) {
+        TestRepository repo = TestRepository.init(dir);
+        String first = repo.commit("a.txt", "one\n", "first");
+        List<String> responses = serve(dir, "checkout " + first.substring(0, 8) + " -- a.txt\n"
+                + "serve\n"
+                + "rm a.txt\n"
+                + "status\n");
+        assertEquals("ok ", responses.get(0));
+        assertEquals("error Already serving.\n", responses.get(1));
+        assertEquals("ok ", responses.get(2));
+        assertTrue(responses.get(3).contains("=== Removed Files ===\na.txt\n"), responses.get(3));
+    }
+
+    @Test
+    void refsRewrittenInPlaceByAnotherProcessAreNoticed(@TempDir Path dir) {
+        TestRepository repo = TestRepository.init(dir);
+        String master = repo.head();
+        repo.run("branch", "feat01");
+        repo.run("checkout", "feat01");
+        String feature = repo.commit("a.txt", "feature\n", "feature");
+        repo.run("checkout", "master");
+        Path gitlet = dir.resolve(".gitlet");
+        List<String> responses = serve(dir, pausing("status\n", () -> {
+            rewriteInPlace(gitlet.resolve("currentBranch"), "master", "feat01");
+            rewriteInPlace(gitlet.resolve("HEAD"), master, feature);
+        }, "status\n"));
+        assertTrue(responses.get(0).startsWith("ok === Branches ===\nfeat01\n*master\n"),
+                responses.get(0));
+        assertTrue(responses.get(1).startsWith("ok === Branches ===\n*feat01\nmaster\n"),
+                responses.get(1));
+    }
+}
@@ -0,0 +1,90 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/** A repository in a temporary directory, on which tests run commands in
+ *  this JVM through Main.run, as the server does.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class TestRepository {
+    /** The working directory of the repository. */
+    private final Path dir;
+
+    /** Opens the repository in DIR, which init has not necessarily made,
+     *  dropping whatever earlier tests left pending, as a new process would. */
+    TestRepository(Path dir) {
+        this.dir = dir;
+        Transaction.abort();
+        Refs.reset();
+        Repository.setupRepository(dir.toString());
+    }
+
+    /** Makes an empty repository in DIR, with the given init OPTIONS, whose
+     *  commands do not flush to disk. */
+    static TestRepository init(Path dir, String... options) {
+        TestRepository repo = new TestRepository(dir);
+        String[] command = new String[options.length + 1];
+        command[0] = "init";
+        System.arraycopy(options, 0, command, 1, options.length);
+        repo.run(command);
+        repo.run("config", "core.fsync", "false");
+        return repo;
+    }
+
+    /** Runs the gitlet command COMMAND and returns what it printed. */
+    String run(String... command) {
+        String[] args = new String[command.length + 1];
+        args[0] = dir.toString();
+        System.arraycopy(command, 0, args, 1, command.length);
+        PrintStream standardOut = System.out;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output, true, StandardCharsets.UTF_8));
+        try {
+            Main.run(args);
+        } finally {
+            System.setOut(standardOut);
+        }
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    /** Returns the file at PATH in the working directory. */
+    File file(String path) {
+        return dir.resolve(path).toFile();
+    }
+
+    /** Writes CONTENTS to the file at PATH, creating its directories. */
+    void write(String path, String contents) {
+        write(path, contents.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Writes CONTENTS to the file at PATH, creating its directories. */
+    void write(String path, byte[] contents) {
+        File file = file(path);
+        file.getParentFile().mkdirs();
+        Utils.writeContents(file, contents);
+    }
+
+    /** Returns the contents of the file at PATH. */
+    String read(String path) {
+        return Utils.readContentsAsString(file(path));
+    }
+
+    /** Writes CONTENTS to PATH, adds it and commits it with MESSAGE, and
+     *  returns the id of the new commit. */
+    String commit(String path, String contents, String message) {
+        write(path, contents);
+        run("add", path);
+        run("commit", message);
+        return head();
+    }
+
+    /** Returns the id of the commit at HEAD. */
+    String head() {
+        return Utils.readContentsAsString(dir.resolve(".gitlet").resolve("HEAD").toFile());
+    }
+}
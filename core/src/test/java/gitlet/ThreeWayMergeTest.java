@@ -0,0 +1,116 @@
+package gitlet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+
+/** Tests of the line-by-line merge of two versions of a file.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class ThreeWayMergeTest {
+    /** The lines "1" to "10". */
+    private static final String BASE = "1\n2\n3\n4\n5\n6\n7\n8\n9\n10\n";
+
+    /** Returns a supplier opening TEXT, or null if TEXT is null. */
+    private static Supplier<InputStream> version(String text) {
+        if (text == null) {
+            return null;
+        }
+        return () -> new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Asserts that merging OURS and THEIRS from BASE, any of which may be
+     *  null for an absent version, writes EXPECTED with CONFLICTS conflicts. */
+    private static void assertMerge(String expected, int conflicts,
+                                    String base, String ours, String theirs) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int written = ThreeWayMerge.merge(version(base), version(ours), version(theirs), out);
+        assertEquals(expected, out.toString(StandardCharsets.UTF_8));
+        assertEquals(conflicts, written);
+    }
+
+    /** Returns a conflict between the lines OURS and THEIRS. */
+    private static String conflict(String ours, String theirs) {
+        return "<<<<<<< HEAD\n" + ours + "=======\n" + theirs + ">>>>>>>\n";
+    }
+
+    @Test
+    void oneSidedChangesAreTaken() {
+        String changed = BASE.replace("3\n", "three\n");
+        assertMerge(changed, 0, BASE, changed, BASE);
+        assertMerge(changed, 0, BASE, BASE, changed);
+        assertMerge(BASE, 0, BASE, BASE, BASE);
+    }
+
+    @Test
+    void separateChangesOfBothSidesAreBothTaken() {
+        String ours = BASE.replace("2\n", "2\na\nb\n").replace("6\n", "");
+        String theirs = BASE.replace("9\n", "nine\n");
+        assertMerge("1\n2\na\nb\n3\n4\n5\n7\n8\nnine\n10\n", 0, BASE, ours, theirs);
+        assertMerge("1\n2\na\nb\n3\n4\n5\n7\n8\nnine\n10\n", 0, BASE, theirs, ours);
+    }
+
+    @Test
+    void conflictsAfterInsertionsHoldTheRightLines() {
+        String ours = BASE.replace("2\n", "2\na\nb\n").replace("8\n", "eight\n");
+        String theirs = BASE.replace("4\n", "").replace("8\n", "EIGHT\n");
+        assertMerge("1\n2\na\nb\n3\n5\n6\n7\n" + conflict("eight\n", "EIGHT\n") + "9\n10\n", 1,
+                BASE, ours, theirs);
+    }
+
+    @Test
+    void identicalChangesDoNotConflict() {
+        String changed = BASE.replace("5\n", "five\n").replace("10\n", "");
+        assertMerge(changed, 0, BASE, changed, changed);
+    }
+
+    @Test
+    void touchingChangesFormOneConflict() {
+        String ours = BASE.replace("3\n", "three\n");
+        String theirs = BASE.replace("4\n", "four\n");
+        assertMerge("1\n2\n" + conflict("three\n4\n", "3\nfour\n") + "5\n6\n7\n8\n9\n10\n", 1,
+                BASE, ours, theirs);
+    }
+
+    @Test
+    void overlappingChangesFormOneConflict() {
+        String ours = BASE.replace("3\n4\n5\n", "x\n");
+        String theirs = BASE.replace("4\n5\n6\n", "y\nz\n").replace("9\n", "nine\n");
+        assertMerge("1\n2\n" + conflict("x\n6\n", "3\ny\nz\n") + "7\n8\nnine\n10\n", 1,
+                BASE, ours, theirs);
+    }
+
+    @Test
+    void insertionsAtTheSamePointConflict() {
+        String ours = BASE.replace("2\n", "2\nx\n");
+        String theirs = BASE.replace("2\n", "2\ny\n");
+        assertMerge("1\n2\n" + conflict("x\n", "y\n") + "3\n4\n5\n6\n7\n8\n9\n10\n", 1,
+                BASE, ours, theirs);
+        assertMerge(ours, 0, BASE, ours, ours);
+        assertMerge(conflict("x\n", "y\n") + BASE, 1, BASE, "x\n" + BASE, "y\n" + BASE);
+        assertMerge(BASE + conflict("x\n", "y\n"), 1, BASE, BASE + "x\n", BASE + "y\n");
+    }
+
+    @Test
+    void missingVersionsAreEmpty() {
+        assertMerge(conflict("a\n", "b\n"), 1, null, "a\n", "b\n");
+        assertMerge("a\n", 0, null, "a\n", "a\n");
+        assertMerge(conflict("1\nchanged\n", ""), 1, "1\n2\n", "1\nchanged\n", null);
+        assertMerge(conflict("", "1\nchanged\n"), 1, "1\n2\n", null, "1\nchanged\n");
+        assertMerge("", 0, "1\n2\n", null, "1\n2\n");
+    }
+
+    @Test
+    void conflictingLastLinesAreTerminated() {
+        assertMerge("1\n" + conflict("x\n", "y\n"), 1, "1\n2\n", "1\nx", "1\ny");
+        assertMerge("1\n" + conflict("x\n", "2\n"), 1, "1\n2", "1\nx", "1\n2\n");
+        assertMerge("1\n2\n3", 0, "1\n2\n", "1\n2\n3", "1\n2\n");
+        assertMerge("1\n2", 0, "1\n2", "1\n2", "1\n2");
+    }
+}
@@ -0,0 +1,36 @@
+package gitlet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Tests of how paths given to add name working files.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class WorkingTreeTest {
+    @Test
+    void addingTheWorkingDirectorySkipsGitletThroughARelativePath(@TempDir Path dir) {
+        Path relative = Path.of("").toAbsolutePath().relativize(dir);
+        assertFalse(relative.isAbsolute());
+        TestRepository repo = TestRepository.init(relative);
+        repo.write("a.txt", "a\n");
+        repo.write("sub/b.txt", "b\n");
+        assertEquals(new TreeSet<>(List.of("a.txt", "sub/b.txt")), WorkingTree.expand("."));
+        repo.run("add", ".");
+        assertEquals(new TreeSet<>(List.of("a.txt", "sub/b.txt")),
+                new TreeSet<>(StagingArea.getStaged().keySet()));
+        repo.run("commit", "everything");
+        String status = repo.run("status");
+        assertTrue(status.endsWith("=== Modifications Not Staged For Commit ===\n\n"
+                + "=== Untracked Files ===\n\n"), status);
+        assertEquals(new TreeSet<>(List.of("a.txt", "sub/b.txt")),
+                new TreeSet<>(Commit.readCommit(repo.head()).getMetadata().keySet()));
+    }
+}
@@ -1,36 +1,97 @@
 package gitlet;
 
-import java.io.Serializable;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
 
-public class Blob implements Serializable {
-    /** the text contents of the Blob*/
-    private String text;
+/** A stored version of a file's contents.  The contents are kept as raw bytes
+ *  in the object store and are streamed in and out through a fixed-size buffer,
+ *  so no Blob ever holds a whole file in memory. */
+public class Blob {
+    /** the size of the buffer used to stream contents in and out */
+    private static final int BUFFER_SIZE = 1 << 16;
     /** the SHA1 ID of the Blob*/
-    private String ID;
+    private final String ID;
 
-    /** Blob constructor which creates a Blob object by the given file passed in during Main.add */
+    /** Blob constructor which creates a Blob object by the given file passed in during Main.add.
+     *  The file is read once, hashed and written to the object store in the same pass. */
     public Blob(File file) {
-        text = Utils.readContentsAsString(file);
-        ID = Utils.sha1(text);
-        saveBlob();
+        File temp = ObjectStore.tempFile(ObjectStore.Kind.BLOB);
+        MessageDigest md = HashEngine.digest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(file.toPath());
+             OutputStream out = ObjectStore.encode(
+                     new BufferedOutputStream(Files.newOutputStream(temp.toPath())))) {
+            for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                md.update(buffer, 0, n);
+                out.write(buffer, 0, n);
+            }
+        } catch (IOException excp) {
+            temp.delete();
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        ID = HashEngine.hex(md.digest());
+        ObjectStore.install(ObjectStore.Kind.BLOB, ID, temp);
     }
 
-    /** Saves the Blob to a file in the Blobs Directory in .gitlet folder */
-    private void saveBlob() {
-        File saveBlob = Utils.join(Repository.BLOBS_DIR, ID);
-        Utils.writeObject(saveBlob, this);
+    /** Returns the SHA1 ID the contents of FILE would have as a Blob, without storing them. */
+    public static String hash(File file) {
+        MessageDigest md = HashEngine.digest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                md.update(buffer, 0, n);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return HashEngine.hex(md.digest());
     }
+
+    private Blob(String id) {
+        ID = id;
+    }
+
     /** looks for the Blob with the given SHA1 ID */
     public static Blob readBlob(String id) {
-        File readBlob = Utils.join(Repository.BLOBS_DIR, id);
-        return Utils.readObject(readBlob, Blob.class);
+        if (!ObjectStore.contains(ObjectStore.Kind.BLOB, id)) {
+            return null;
+        }
+        return new Blob(id);
     }
 
-    /** Getter methods for Blob*/
-    public String getText() {
-        return text;
+    /** Returns a stream over the contents of this Blob. */
+    public InputStream open() {
+        return ObjectStore.open(ObjectStore.Kind.BLOB, ID);
     }
+
+    /** Writes the contents of this Blob to FILE, overwriting it if it exists
+     *  and creating the directories above it if they do not.  Uncompressed
+     *  contents are copied straight from the store without entering the heap. */
+    public void writeTo(File file) {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory()) {
+            parent.mkdirs();
+        }
+        if (ObjectStore.transferTo(ObjectStore.Kind.BLOB, ID, file.toPath())) {
+            return;
+        }
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = open();
+             OutputStream out = Files.newOutputStream(file.toPath())) {
+            for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                out.write(buffer, 0, n);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Getter methods for Blob*/
     public String getID() {
         return ID;
     }
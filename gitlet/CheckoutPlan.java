@@ -0,0 +1,115 @@
+package gitlet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** The changes to the working directory needed to move from one commit to
+ *  another: the files to write, with the blob each should hold, and the files
+ *  to delete.  A file tracked by both commits with the same blob is left
+ *  alone unless the working index shows its contents have changed.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class CheckoutPlan {
+    /** The blob id to write to each path, in path order. */
+    private final TreeMap<String, String> writes = new TreeMap<>();
+    /** The paths to delete, in order. */
+    private final List<String> deletes = new ArrayList<>();
+    /** The paths written that the current commit does not track. */
+    private final List<String> created = new ArrayList<>();
+    /** The blob id of each file tracked by the current commit. */
+    private final HashMap<String, String> tracked;
+    /** The number of files tracked by the target commit. */
+    private final int targetSize;
+
+    /** Plans the move from the files tracked by CURRENT to those of TARGET. */
+    CheckoutPlan(Commit current, Commit target) {
+        HashMap<String, String> currentFiles = current.getMetadata();
+        HashMap<String, String> targetFiles = target.getMetadata();
+        tracked = currentFiles;
+        targetSize = targetFiles.size();
+        for (Map.Entry<String, String> entry : targetFiles.entrySet()) {
+            String path = entry.getKey();
+            String blobId = entry.getValue();
+            String currentId = currentFiles.get(path);
+            if (currentId == null) {
+                writes.put(path, blobId);
+                created.add(path);
+            } else if (!currentId.equals(blobId) || !isUnchanged(path, blobId)) {
+                writes.put(path, blobId);
+            }
+        }
+        for (String path : currentFiles.keySet()) {
+            if (!targetFiles.containsKey(path)) {
+                deletes.add(path);
+            }
+        }
+        deletes.sort(null);
+        created.sort(null);
+    }
+
+    /** Returns whether the working file PATH still holds the blob BLOBID. */
+    private static boolean isUnchanged(String path, String blobId) {
+        File file = Utils.join(Repository.CWD, path);
+        return file.isFile() && WorkingIndex.hash(file, path).equals(blobId);
+    }
+
+    /** Returns whether some file to be created would overwrite a working
+     *  file the current commit does not track. */
+    boolean overwritesUntracked() {
+        for (String path : created) {
+            if (untrackedInTheWay(path, tracked)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Returns whether writing the working file PATH would overwrite a file
+     *  not in TRACKED: an untracked file at PATH or at a directory above it,
+     *  or an untracked file under a directory at PATH.  Tracked files there
+     *  are not in the way, since they are deleted first. */
+    static boolean untrackedInTheWay(String path, Map<String, String> tracked) {
+        File file = Utils.join(Repository.CWD, path);
+        if (file.isDirectory()) {
+            for (String inside : WorkingTree.files(file)) {
+                if (!tracked.containsKey(inside)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (file.exists()) {
+            return !tracked.containsKey(path);
+        }
+        for (File dir = file.getParentFile(); dir != null && !dir.equals(Repository.CWD);
+             dir = dir.getParentFile()) {
+            if (dir.exists()) {
+                return dir.isFile() && !tracked.containsKey(WorkingTree.path(dir));
+            }
+        }
+        return false;
+    }
+
+    /** Deletes the planned files, and the directories they leave empty, then
+     *  writes the planned files in parallel, recording them in the working
+     *  index, so that a file may replace a directory and the reverse. */
+    void apply() {
+        for (String path : deletes) {
+            WorkingTree.delete(path);
+            WorkingIndex.forget(path);
+        }
+        Materializer.write(writes);
+    }
+
+    /** Returns a summary of the changes, for the user.  Commands print it to
+     *  the standard error, so that their standard output stays as it was. */
+    String summary() {
+        return String.format("Updated %d of %d files, removed %d.",
+                writes.size(), targetSize, deletes.size());
+    }
+}
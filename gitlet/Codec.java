@@ -0,0 +1,110 @@
+package gitlet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/** A compression codec for stored objects.  The id of the codec that encoded
+ *  an object is recorded in the object's header, so objects written with
+ *  different codecs can live side by side in the same store.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+interface Codec {
+    /** Returns the id recording this codec in object headers. */
+    byte id();
+
+    /** Returns the name by which this codec is configured. */
+    String name();
+
+    /** Returns a stream that encodes what is written to it onto OUT.
+     *  Closing the returned stream closes OUT. */
+    OutputStream encode(OutputStream out);
+
+    /** Returns a stream that decodes what is read from IN.
+     *  Closing the returned stream closes IN. */
+    InputStream decode(InputStream in);
+
+    /** Stores objects as they are. */
+    Codec NONE = new Codec() {
+        public byte id() {
+            return 0;
+        }
+        public String name() {
+            return "none";
+        }
+        public OutputStream encode(OutputStream out) {
+            return out;
+        }
+        public InputStream decode(InputStream in) {
+            return in;
+        }
+    };
+
+    /** The zlib deflate codec, the default. */
+    Codec DEFLATE = new Codec() {
+        public byte id() {
+            return 1;
+        }
+        public String name() {
+            return "deflate";
+        }
+        public OutputStream encode(OutputStream out) {
+            return new DeflaterOutputStream(out, new Deflater(), 1 << 16) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        def.end();
+                    }
+                }
+            };
+        }
+        public InputStream decode(InputStream in) {
+            return new InflaterInputStream(in, new Inflater(), 1 << 16) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        inf.end();
+                    }
+                }
+            };
+        }
+    };
+
+    /** A fast LZ77-style codec trading ratio for speed. */
+    Codec LZ = new LzCodec();
+
+    /** Returns every known codec. */
+    static List<Codec> all() {
+        return List.of(NONE, DEFLATE, LZ);
+    }
+
+    /** Returns the codec recorded by ID. */
+    static Codec forId(byte id) {
+        for (Codec codec : all()) {
+            if (codec.id() == id) {
+                return codec;
+            }
+        }
+        throw Utils.error("Unknown codec %d.", id);
+    }
+
+    /** Returns the codec called NAME, or null if there is none. */
+    static Codec forName(String name) {
+        for (Codec codec : all()) {
+            if (codec.name().equals(name)) {
+                return codec;
+            }
+        }
+        return null;
+    }
+}
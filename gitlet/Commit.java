@@ -2,22 +2,38 @@ package gitlet;
 
 import java.io.File;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.*;
 
 /** Represents a gitlet commit object.
  *
+ *  A commit is stored in a compact binary encoding: a format byte, the
+ *  timestamp as a long, the number of parents as a byte, the raw id of each
+ *  parent and of the tree, and the length-prefixed UTF-8 message.  Its id is
+ *  the hash of that encoding by HashEngine, with the repository's algorithm.
+ *  Commits of repositories made before this encoding were Java-serialized,
+ *  and are read only by Migration.
  *
  *  @author Shiang Lin, Ian Huang
  */
 public class Commit implements Serializable {
+    /** The version of the original serialized form, which has no tree. */
+    private static final long serialVersionUID = 324654058014940062L;
+    /** The byte starting the binary encoding of a commit. */
+    private static final byte FORMAT = 1;
+    /** Recently read commits, shared by every thread. */
+    private static final ObjectCache<Commit> CACHE = new ObjectCache<>("commits", 8 << 20);
+    /** The estimated bytes a cached commit occupies besides its message. */
+    private static final int OVERHEAD = 512;
     /**
      *
      * List all instance variables of the Commit class here with a useful
      * comment above them describing what that variable represents and how that
      * variable is used. We've provided one example for `message`.
      */
-    /** The sha1 ID of this Commit. */
+    /** The ID of this Commit, the HashEngine hash of its encoding. */
     private String ID;
     /** The message of this Commit. */
     private String message;
@@ -25,48 +41,126 @@ public class Commit implements Serializable {
     private Date timestamp;
     /** The parent of this Commit */
     private String parentCommit;
-    /** Stores the metadata of the commit, HashMap< File name, sha1 of the blob> */
+    /** The second parent of a merge Commit: the head of the branch merged
+     *  in; null in other commits */
+    private String mergeParent;
+    /** The files of a commit made before trees, HashMap< File name, sha1 of the blob>;
+     *  null in commits that have a tree */
     private HashMap<String, String> metadata;
+    /** The id of the tree holding the files of this Commit */
+    private String tree;
 
-    public Commit(String message, String parentCommit) {
-        this.message = message;
-        this.timestamp = new Date();
-        this.parentCommit = parentCommit;
-        metadata = new HashMap<>();
-        ID = Utils.createID(this);
+    public Commit(String message, String parentCommit, String tree) {
+        this(message, parentCommit, null, tree);
+    }
+
+    /** Creates the merge commit of MERGEPARENT into PARENTCOMMIT, or a plain
+     *  commit if MERGEPARENT is null */
+    public Commit(String message, String parentCommit, String mergeParent, String tree) {
+        this(message, new Date(), parentIds(parentCommit, mergeParent), tree);
     }
 
     public Commit(String message) {
+        this(message, new Date(0), List.of(), Tree.write(new HashMap<>()));
+    }
+
+    /** Creates the commit with the given MESSAGE, TIMESTAMP, PARENTS and TREE */
+    Commit(String message, Date timestamp, List<String> parents, String tree) {
+        if (parents.size() > 2) {
+            throw Utils.error("A commit has at most two parents.");
+        }
         this.message = message;
-        this.timestamp = new Date(0);
-        this.parentCommit = null;
-        metadata = new HashMap<>();
-        ID = Utils.createID(this);
+        this.timestamp = timestamp;
+        this.parentCommit = parents.isEmpty() ? null : parents.get(0);
+        this.mergeParent = parents.size() < 2 ? null : parents.get(1);
+        this.tree = tree;
+        ID = HashEngine.hash(encode());
     }
 
-    /** Save this commit object to a file with name ID in .gitlet/commits */
+    /** Returns the binary encoding of this Commit */
+    byte[] encode() {
+        byte[] messageBytes = message.getBytes(StandardCharsets.UTF_8);
+        List<String> parents = getParentIds();
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 8 + 1
+                + (parents.size() + 1) * HashEngine.rawIdLength() + 4 + messageBytes.length);
+        buffer.put(FORMAT);
+        buffer.putLong(timestamp.getTime());
+        buffer.put((byte) parents.size());
+        for (String parent : parents) {
+            buffer.put(Utils.toRawId(parent));
+        }
+        buffer.put(Utils.toRawId(tree));
+        buffer.putInt(messageBytes.length);
+        buffer.put(messageBytes);
+        return buffer.array();
+    }
+
+    /** Returns the commit with the given ID decoded from DATA */
+    static Commit decode(String id, byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        if (buffer.get() != FORMAT) {
+            throw Utils.error("Commit %s is in an unknown format; run migrate.", id);
+        }
+        Commit commit = new Commit();
+        commit.ID = id;
+        commit.timestamp = new Date(buffer.getLong());
+        int parents = buffer.get();
+        for (int i = 0; i < parents; i += 1) {
+            String parent = Utils.toHexId(data, buffer.position(), HashEngine.rawIdLength());
+            buffer.position(buffer.position() + HashEngine.rawIdLength());
+            if (i == 0) {
+                commit.parentCommit = parent;
+            } else if (i == 1) {
+                commit.mergeParent = parent;
+            }
+        }
+        commit.tree = Utils.toHexId(data, buffer.position(), HashEngine.rawIdLength());
+        buffer.position(buffer.position() + HashEngine.rawIdLength());
+        int length = buffer.getInt();
+        commit.message = new String(data, buffer.position(), length, StandardCharsets.UTF_8);
+        return commit;
+    }
+
+    /** Creates an empty commit, to be filled in by decode */
+    private Commit() {
+    }
+
+    /** Save this commit object to the object store under its ID, and record
+     *  it in the commit-graph, the commit id index and the message index
+     *  when the command commits */
     public void saveCommit() {
-        File saveFile = Utils.join(Repository.COMMITS_DIR, ID);
-        Utils.writeObject(saveFile, this);
+        ObjectStore.write(ObjectStore.Kind.COMMIT, ID, encode());
+        CommitGraph.add(this);
+        CommitIndex.add(ID);
+        MessageIndex.add(ID, message);
     }
-    /** Reads in a Commit from a file with name ID */
+    /** Reads in the Commit with the given ID from the object store, or from
+     *  the cache of recently read commits */
     public static Commit readCommit(String id) {
-        File saveFile = Utils.join(Repository.COMMITS_DIR, id);
-        if (!saveFile.exists()) {
+        Commit commit = CACHE.get(id);
+        if (commit != null) {
+            return commit;
+        }
+        byte[] data = ObjectStore.read(ObjectStore.Kind.COMMIT, id);
+        if (data == null) {
             return null;
         }
-        return Utils.readObject(saveFile, Commit.class);
+        commit = decode(id, data);
+        CACHE.put(id, commit, OVERHEAD + 2L * commit.message.length());
+        return commit;
     }
 
+    /** Reads in the Commit whose ID starts with the given abbreviated ID, or returns
+     *  null if there is none.  Exits with an error if more than one commit matches. */
     public static Commit readCommitAb(String id) {
-        String fullId = id;
-        List<String> fileList = Utils.plainFilenamesIn(Repository.COMMITS_DIR);
-        for (String filename: fileList) {
-            if (filename.startsWith(id)) {
-                fullId = filename;
-            }
+        List<String> matches = CommitIndex.resolve(id, 2);
+        if (matches.isEmpty()) {
+            return null;
         }
-        return readCommit(fullId);
+        if (matches.size() > 1) {
+            Main.exitWithError("Ambiguous commit id; use more characters.");
+        }
+        return readCommit(matches.get(0));
     }
     public String getID() {
         return ID;
@@ -79,19 +173,57 @@ public class Commit implements Serializable {
         return readCommit(parentCommit);
     }
 
+    /** Returns the ids of the parents of this Commit, first parent first */
+    public List<String> getParentIds() {
+        return parentIds(parentCommit, mergeParent);
+    }
+
+    /** Returns the list of the non-null ids among FIRST and SECOND */
+    private static List<String> parentIds(String first, String second) {
+        if (first == null) {
+            return List.of();
+        }
+        if (second == null) {
+            return List.of(first);
+        }
+        return List.of(first, second);
+    }
+
     public String getMessage() {
         return message;
     }
 
+    public Date getTimestamp() {
+        return timestamp;
+    }
+
+    /** Returns the id of the tree holding the files of this Commit, writing
+     *  one from the files of a commit made before trees */
+    public String getTree() {
+        if (tree == null) {
+            return Tree.write(metadata);
+        }
+        return tree;
+    }
+
     /** Gets the blob of the given file in this commit */
     public String getBlobSha1(File file) {
-        return metadata.get(file.getName());
+        return getBlobSha1(WorkingTree.path(file));
+    }
+
+    /** Gets the blob of the file at the given path in this commit, reading
+     *  only the trees along the path */
+    public String getBlobSha1(String path) {
+        if (tree == null) {
+            return metadata.get(path);
+        }
+        return Tree.lookup(tree, path);
     }
 
     /** Gets the most recent blob's sha1 of the given file. */
     public static String getRecentFileBlobSha1(String headSha1, File file) {
         Commit temp = readCommit(headSha1);
-        while (!temp.metadata.containsKey(file)) {
+        while (temp.getBlobSha1(file) == null) {
             if (temp.parentCommit == null) {
                 return null;
             }
@@ -102,25 +234,33 @@ public class Commit implements Serializable {
 
     @Override
     public String toString() {
+        return format(ID, getParentIds(), timestamp, message);
+    }
+
+    /** Returns the log entry of the commit with the given ID, PARENTS, TIMESTAMP
+     *  and MESSAGE; the entry of a merge commit names the start of both parents */
+    public static String format(String id, List<String> parents, Date timestamp, String message) {
         SimpleDateFormat sdFormat = new SimpleDateFormat("EEE MMM d HH:mm:ss yyyy Z", Locale.US);
         sdFormat.setTimeZone(TimeZone.getTimeZone("PST"));
-        return "===\n" + "commit " + ID + "\nDate: "
+        String merge = "";
+        if (parents.size() > 1) {
+            merge = "Merge: " + parents.get(0).substring(0, 7) + " "
+                    + parents.get(1).substring(0, 7) + "\n";
+        }
+        return "===\n" + "commit " + id + "\n" + merge + "Date: "
                 + sdFormat.format(timestamp) + "\n" + message + "\n";
     }
 
-    public void metadataPutAll(HashMap<String, String> map) {
-        metadata.putAll(map);
-    }
-
-    public void metadataRemoveAll(HashMap<String, String> map) {
-        metadata.keySet().removeAll(map.keySet());
-    }
-
+    /** Returns the blob id of every file in this Commit, by path, in a new
+     *  map flattened from its tree */
     public HashMap<String, String> getMetadata() {
-        return metadata;
+        if (tree == null) {
+            return new HashMap<>(metadata);
+        }
+        return Tree.flatten(tree);
     }
 
     public boolean metadataContains(String filename) {
-        return metadata.containsKey(filename);
+        return getBlobSha1(filename) != null;
     }
 }
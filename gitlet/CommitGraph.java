@@ -0,0 +1,541 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** The commit-graph: every commit's parents, timestamp and generation number
+ *  in fixed-width rows, so history can be walked without reading commits.
+ *
+ *  .gitlet/commit-graph holds a header and one fixed-width row per commit: its
+ *  raw id, the row positions of its two parents (NO_PARENT if absent), its
+ *  generation number, its timestamp, and the offset and length of its
+ *  message in .gitlet/commit-messages.  The offset is stored as a long,
+ *  but the messages file is mapped whole, so it may not exceed
+ *  Integer.MAX_VALUE bytes.  A commit's row always follows those
+ *  of its parents.  Commit.saveCommit appends a commit's row when the command
+ *  commits, once the commit is on disk, and the row is on disk before the
+ *  row count that makes it part of the graph.
+ *
+ *  .gitlet/commit-graph-index finds a commit's row by id: a fan-out table
+ *  counting the indexed ids up to each first byte, then the raw id and row
+ *  of each indexed commit in id order, searched by bisection.  It covers
+ *  the rows present when it was written; the few appended since are held
+ *  in a map made at load, and the index is rewritten once they number
+ *  INDEX_THRESHOLD.
+ *
+ *  The rows double as the parent table of the merge-base search, which
+ *  walks back from both commits at once, always from the commit of highest
+ *  generation, so it never looks below the generation of the merge base.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class CommitGraph {
+    /** "GLCG", the first four bytes of the commit-graph. */
+    private static final int MAGIC = 0x474c4347;
+    /** The version of the commit-graph format. */
+    private static final int VERSION = 1;
+    /** The length of the header: magic, version and row count. */
+    private static final int HEADER = 12;
+
+    /** "GLGI", the first four bytes of the commit-graph index. */
+    private static final int INDEX_MAGIC = 0x474c4749;
+    /** The length of the index header: magic, version, the number of rows
+     *  indexed and the fan-out table. */
+    private static final int INDEX_HEADER = 12 + 256 * 4;
+    /** The number of rows past the index at which it is rewritten. */
+    private static final int INDEX_THRESHOLD = 1024;
+
+    /** The parent position of a commit lacking that parent. */
+    static final int NO_PARENT = -1;
+    /** The marks of a commit reached, in a merge-base search, from the first
+     *  commit, from the second, and from both. */
+    private static final byte FROM_FIRST = 1, FROM_SECOND = 2, FROM_BOTH = 3;
+
+    /** The rows of the commit-graph, mapped on first use. */
+    private static ByteBuffer rows;
+    /** The commit messages, mapped on first use. */
+    private static ByteBuffer messages;
+    /** The number of rows. */
+    private static int count;
+    /** The index, mapped on first use. */
+    private static ByteBuffer index;
+    /** The row of each commit appended since the index was written, by id. */
+    private static Map<String, Integer> recent;
+
+    /** Forgets the mapped files, so that they are mapped again on next use. */
+    static void reset() {
+        rows = null;
+        messages = null;
+        count = 0;
+        index = null;
+        recent = null;
+    }
+
+    /** Returns the commit-graph file. */
+    private static File graphFile() {
+        return Utils.join(Repository.GITLET_DIR, "commit-graph");
+    }
+
+    /** Returns the file holding the index. */
+    private static File indexFile() {
+        return Utils.join(Repository.GITLET_DIR, "commit-graph-index");
+    }
+
+    /** Returns the file holding the commit messages. */
+    private static File messagesFile() {
+        return Utils.join(Repository.GITLET_DIR, "commit-messages");
+    }
+
+    /** Maps the commit-graph, rebuilding it from the commits if it is missing. */
+    private static void load() {
+        if (rows != null) {
+            return;
+        }
+        if (!graphFile().isFile() || !messagesFile().isFile()) {
+            rebuild();
+        }
+        rows = map(graphFile());
+        messages = map(messagesFile());
+        if (rows.getInt(0) != MAGIC || rows.getInt(4) != VERSION) {
+            throw Utils.error("Corrupt commit-graph.");
+        }
+        count = rows.getInt(8);
+        loadIndex();
+    }
+
+    /** Maps the index, rewriting it first if it is missing, does not match
+     *  the commit-graph or lags it by INDEX_THRESHOLD rows. */
+    private static void loadIndex() {
+        if (indexFile().isFile()) {
+            index = map(indexFile());
+            if (index.getInt(0) != INDEX_MAGIC || index.getInt(4) != VERSION) {
+                throw Utils.error("Corrupt commit-graph index.");
+            }
+        }
+        if (index == null || index.getInt(8) > count || count - index.getInt(8) >= INDEX_THRESHOLD) {
+            writeIndex();
+            index = map(indexFile());
+        }
+        recent = new HashMap<>();
+        for (int pos = index.getInt(8); pos < count; pos += 1) {
+            recent.put(id(pos), pos);
+        }
+    }
+
+    /** Writes the index of every row in the commit-graph. */
+    private static void writeIndex() {
+        int entryLength = HashEngine.rawIdLength() + 4;
+        byte[][] entries = new byte[count][];
+        int[] fanOut = new int[256];
+        for (int pos = 0; pos < count; pos += 1) {
+            entries[pos] = new byte[entryLength];
+            rows.get(offset(pos), entries[pos], 0, HashEngine.rawIdLength());
+            ByteBuffer.wrap(entries[pos]).putInt(HashEngine.rawIdLength(), pos);
+            fanOut[entries[pos][0] & 0xff] += 1;
+        }
+        Arrays.sort(entries, Arrays::compareUnsigned);
+        File temp = Utils.join(Repository.GITLET_DIR, "commit-graph-index.tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(temp.toPath())))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(count);
+            int total = 0;
+            for (int b = 0; b < 256; b += 1) {
+                total += fanOut[b];
+                out.writeInt(total);
+            }
+            for (byte[] entry : entries) {
+                out.write(entry);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        try {
+            Files.move(temp.toPath(), indexFile().toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns FILE mapped read-only. */
+    private static ByteBuffer map(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath())) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw Utils.error("%s is too large to map.", file.getName());
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the number of commits in the graph. */
+    static int size() {
+        load();
+        return count;
+    }
+
+    /** Returns the row position of the commit with the given ID, or
+     *  NO_PARENT if it is not in the graph.  Recent rows are found in a map,
+     *  and the rest by bisecting the index between the fan-out bounds of the
+     *  id's first byte. */
+    static int position(String id) {
+        load();
+        if (id == null || id.length() != HashEngine.idLength()) {
+            return NO_PARENT;
+        }
+        Integer pos = recent.get(id);
+        if (pos != null) {
+            return pos;
+        }
+        byte[] rawId = Utils.toRawId(id);
+        byte[] entryId = new byte[HashEngine.rawIdLength()];
+        int entryLength = HashEngine.rawIdLength() + 4;
+        int first = rawId[0] & 0xff;
+        int low = first == 0 ? 0 : index.getInt(12 + 4 * (first - 1));
+        int high = index.getInt(12 + 4 * first) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int entry = INDEX_HEADER + mid * entryLength;
+            index.get(entry, entryId);
+            int cmp = Arrays.compareUnsigned(entryId, rawId);
+            if (cmp == 0) {
+                return index.getInt(entry + HashEngine.rawIdLength());
+            } else if (cmp < 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return NO_PARENT;
+    }
+
+    /** Returns the offset of row POS in the commit-graph. */
+    private static int offset(int pos) {
+        return HEADER + pos * rowLength();
+    }
+
+    /** Returns the length of a row, which depends on the length of an id. */
+    private static int rowLength() {
+        return HashEngine.rawIdLength() + 4 + 4 + 4 + 8 + 8 + 4;
+    }
+
+    /** Returns the id of the commit at row POS. */
+    static String id(int pos) {
+        byte[] rawId = new byte[HashEngine.rawIdLength()];
+        rows.get(offset(pos), rawId);
+        return Utils.toHexId(rawId, 0, rawId.length);
+    }
+
+    /** Returns the row of parent K (0 or 1) of the commit at row POS, or
+     *  NO_PARENT. */
+    static int parent(int pos, int k) {
+        return rows.getInt(offset(pos) + HashEngine.rawIdLength() + 4 * k);
+    }
+
+    /** Returns the ids of the parents of the commit at row POS, first parent
+     *  first. */
+    static List<String> parentIds(int pos) {
+        List<String> result = new ArrayList<>(2);
+        for (int k = 0; k < 2; k += 1) {
+            if (parent(pos, k) != NO_PARENT) {
+                result.add(id(parent(pos, k)));
+            }
+        }
+        return result;
+    }
+
+    /** Returns the generation number of the commit at row POS: 1 for a root
+     *  commit, and otherwise one more than the largest of its parents'. */
+    static int generation(int pos) {
+        return rows.getInt(offset(pos) + HashEngine.rawIdLength() + 8);
+    }
+
+    /** Returns the timestamp, in milliseconds, of the commit at row POS. */
+    static long timestamp(int pos) {
+        return rows.getLong(offset(pos) + HashEngine.rawIdLength() + 12);
+    }
+
+    /** Returns the message of the commit at row POS. */
+    static String message(int pos) {
+        long start = rows.getLong(offset(pos) + HashEngine.rawIdLength() + 20);
+        int length = rows.getInt(offset(pos) + HashEngine.rawIdLength() + 28);
+        if (start < 0 || length < 0 || start > messages.limit() - length) {
+            throw Utils.error("Corrupt commit-graph.");
+        }
+        byte[] bytes = new byte[length];
+        messages.get((int) start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Returns the id of a latest common ancestor of the commits with ids
+     *  FIRST and SECOND: one that is not an ancestor of any other common
+     *  ancestor.  Returns null if they have none. */
+    static String mergeBase(String first, String second) {
+        int firstPos = position(first);
+        int secondPos = position(second);
+        if (firstPos == NO_PARENT || secondPos == NO_PARENT) {
+            reset();
+            rebuild();
+            firstPos = position(first);
+            secondPos = position(second);
+        }
+        int base = mergeBase(firstPos, secondPos);
+        return base == NO_PARENT ? null : id(base);
+    }
+
+    /** Returns the row of a latest common ancestor of the commits at rows
+     *  FIRST and SECOND, or NO_PARENT if they have none.  Commits are visited
+     *  in decreasing generation, so every commit a walk reaches is marked
+     *  with both walks before it is visited, and the first commit visited
+     *  with both marks is a latest common ancestor: any common ancestor it
+     *  is an ancestor of has a higher generation and was visited earlier. */
+    private static int mergeBase(int first, int second) {
+        if (first == second) {
+            return first;
+        }
+        byte[] marks = new byte[count];
+        GenerationQueue queue = new GenerationQueue();
+        marks[first] = FROM_FIRST;
+        marks[second] = FROM_SECOND;
+        queue.add(first);
+        queue.add(second);
+        while (!queue.isEmpty()) {
+            int pos = queue.poll();
+            byte mark = marks[pos];
+            if (mark == FROM_BOTH) {
+                return pos;
+            }
+            for (int k = 0; k < 2; k += 1) {
+                int parent = parent(pos, k);
+                if (parent != NO_PARENT && (marks[parent] & mark) != mark) {
+                    marks[parent] |= mark;
+                    queue.add(parent);
+                }
+            }
+        }
+        return NO_PARENT;
+    }
+
+    /** A queue of rows, highest generation first, held as a binary heap of
+     *  longs whose high half is the generation and low half the row, so
+     *  that no row is boxed and no generation is read twice. */
+    private static class GenerationQueue {
+        /** The heap, in its first SIZE elements. */
+        private long[] heap = new long[64];
+        /** The number of rows queued. */
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        /** Queues the row POS. */
+        void add(int pos) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+            }
+            long key = ((long) generation(pos) << 32) | pos;
+            int i = size;
+            size += 1;
+            while (i > 0 && heap[(i - 1) / 2] < key) {
+                heap[i] = heap[(i - 1) / 2];
+                i = (i - 1) / 2;
+            }
+            heap[i] = key;
+        }
+
+        /** Removes and returns a row of highest generation. */
+        int poll() {
+            long top = heap[0];
+            size -= 1;
+            long last = heap[size];
+            int i = 0;
+            while (2 * i + 1 < size) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && heap[child + 1] > heap[child]) {
+                    child += 1;
+                }
+                if (heap[child] <= last) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = last;
+            return (int) top;
+        }
+    }
+
+    /** Appends COMMIT, whose parents must already be in the graph, when the
+     *  current command commits, unless the graph already holds it. */
+    static void add(Commit commit) {
+        Transaction.append(() -> append(commit));
+    }
+
+    /** Appends COMMIT, whose parents must already be in the graph, unless the
+     *  graph already holds it. */
+    private static void append(Commit commit) {
+        load();
+        if (position(commit.getID()) != NO_PARENT) {
+            return;
+        }
+        List<String> parentIds = commit.getParentIds();
+        int[] parents = {NO_PARENT, NO_PARENT};
+        int generation = 1;
+        for (int k = 0; k < parentIds.size(); k += 1) {
+            parents[k] = position(parentIds.get(k));
+            if (parents[k] == NO_PARENT) {
+                reset();
+                rebuild();
+                return;
+            }
+            generation = Math.max(generation, generation(parents[k]) + 1);
+        }
+        byte[] message = commit.getMessage().getBytes(StandardCharsets.UTF_8);
+        boolean fsync = Transaction.fsync();
+        try (RandomAccessFile messagesOut = new RandomAccessFile(messagesFile(), "rw");
+             RandomAccessFile graphOut = new RandomAccessFile(graphFile(), "rw")) {
+            long start = messagesOut.length();
+            if (start + message.length > Integer.MAX_VALUE) {
+                throw Utils.error("%s is too large to map.", messagesFile().getName());
+            }
+            messagesOut.seek(start);
+            messagesOut.write(message);
+            graphOut.seek(offset(count));
+            graphOut.write(row(commit, parents, generation, start, message.length));
+            if (fsync) {
+                messagesOut.getChannel().force(false);
+                graphOut.getChannel().force(false);
+            }
+            graphOut.seek(8);
+            graphOut.writeInt(count + 1);
+            if (fsync) {
+                graphOut.getChannel().force(false);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        reset();
+    }
+
+    /** Returns the row recording COMMIT with the given PARENTS rows and
+     *  GENERATION, whose message is at START in the messages file and is
+     *  LENGTH bytes long. */
+    private static byte[] row(Commit commit, int[] parents, int generation,
+                              long start, int length) {
+        ByteBuffer row = ByteBuffer.allocate(rowLength());
+        row.put(Utils.toRawId(commit.getID()));
+        row.putInt(parents[0]);
+        row.putInt(parents[1]);
+        row.putInt(generation);
+        row.putLong(commit.getTimestamp().getTime());
+        row.putLong(start);
+        row.putInt(length);
+        return row.array();
+    }
+
+    /** Writes the commit-graph afresh from every commit in the object store. */
+    static void rebuild() {
+        rebuild(ObjectStore.list(ObjectStore.Kind.COMMIT));
+    }
+
+    /** Writes the commit-graph afresh from the commits with the given IDS.
+     *  Both files are written beside the originals and renamed over them,
+     *  the graph last and only once the old one is gone, so that a rebuild
+     *  cut short leaves either the old graph or none, and a reader that has
+     *  mapped the old files keeps reading them. */
+    static void rebuild(List<String> ids) {
+        Map<String, Commit> commits = new HashMap<>();
+        for (String id : ids) {
+            commits.put(id, Commit.readCommit(id));
+        }
+        List<Commit> order = new ArrayList<>();
+        Set<String> visited = new HashSet<>();
+        for (String id : ids) {
+            Deque<String> stack = new ArrayDeque<>();
+            stack.push(id);
+            while (!stack.isEmpty()) {
+                String top = stack.peek();
+                if (visited.contains(top)) {
+                    stack.pop();
+                    continue;
+                }
+                boolean ready = true;
+                for (String parent : commits.get(top).getParentIds()) {
+                    if (commits.containsKey(parent) && !visited.contains(parent)) {
+                        stack.push(parent);
+                        ready = false;
+                    }
+                }
+                if (ready) {
+                    stack.pop();
+                    visited.add(top);
+                    order.add(commits.get(top));
+                }
+            }
+        }
+        Map<String, Integer> positions = new HashMap<>();
+        int[] generations = new int[order.size()];
+        File graphTemp = Utils.join(Repository.GITLET_DIR, "commit-graph.tmp");
+        File messagesTemp = Utils.join(Repository.GITLET_DIR, "commit-messages.tmp");
+        try (DataOutputStream graphOut = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(graphTemp.toPath())));
+             DataOutputStream messagesOut = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(messagesTemp.toPath())))) {
+            graphOut.writeInt(MAGIC);
+            graphOut.writeInt(VERSION);
+            graphOut.writeInt(order.size());
+            long start = 0;
+            for (int pos = 0; pos < order.size(); pos += 1) {
+                Commit commit = order.get(pos);
+                int[] parents = {NO_PARENT, NO_PARENT};
+                int generation = 1;
+                List<String> parentIds = commit.getParentIds();
+                for (int k = 0; k < parentIds.size(); k += 1) {
+                    Integer parent = positions.get(parentIds.get(k));
+                    if (parent != null) {
+                        parents[k] = parent;
+                        generation = Math.max(generation, generations[parent] + 1);
+                    }
+                }
+                byte[] message = commit.getMessage().getBytes(StandardCharsets.UTF_8);
+                graphOut.write(row(commit, parents, generation, start, message.length));
+                messagesOut.write(message);
+                start += message.length;
+                positions.put(commit.getID(), pos);
+                generations[pos] = generation;
+            }
+        } catch (IOException excp) {
+            graphTemp.delete();
+            messagesTemp.delete();
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        try {
+            Files.deleteIfExists(indexFile().toPath());
+            Files.deleteIfExists(graphFile().toPath());
+            Files.move(messagesTemp.toPath(), messagesFile().toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Files.move(graphTemp.toPath(), graphFile().toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/** A persistent sorted table of commit ids for resolving abbreviated ids.
+ *
+ *  .gitlet/commit-ids holds a header and the raw ids of the commits in
+ *  sorted order, and a prefix is resolved with one binary search over it.
+ *  Newly saved commits are appended to .gitlet/commit-ids.log when the
+ *  command commits, once the commits themselves are on disk; the log is
+ *  read into a sorted set once per command, searched alongside the table,
+ *  and merged into the table once it holds MERGE_THRESHOLD ids, so that
+ *  saving a commit does not rewrite the table.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class CommitIndex {
+    /** "GLCI", the first four bytes of the table. */
+    private static final int MAGIC = 0x474c4349;
+    /** The version of the table format. */
+    private static final int VERSION = 1;
+    /** The length of the header: magic, version and id count. */
+    private static final int HEADER = 12;
+    /** The number of logged ids at which the log is merged into the table. */
+    private static final int MERGE_THRESHOLD = 1024;
+
+    /** The sorted table, mapped on first use. */
+    private static ByteBuffer table;
+    /** The number of ids in the table. */
+    private static int count;
+    /** The ids in the log, in sorted order. */
+    private static TreeSet<String> logged;
+    /** The length of the whole ids in the log file, in bytes. */
+    private static int logLength;
+
+    /** Forgets the loaded table and log, so that they are loaded on next use. */
+    static void reset() {
+        table = null;
+        logged = null;
+        logLength = 0;
+        count = 0;
+    }
+
+    /** Returns the file holding the sorted table. */
+    private static File tableFile() {
+        return Utils.join(Repository.GITLET_DIR, "commit-ids");
+    }
+
+    /** Returns the file holding the log of ids not yet in the table. */
+    private static File logFile() {
+        return Utils.join(Repository.GITLET_DIR, "commit-ids.log");
+    }
+
+    /** Loads the table and the log, rebuilding the table if it is missing. */
+    private static void load() {
+        if (table != null) {
+            return;
+        }
+        if (!tableFile().isFile()) {
+            rebuild();
+        }
+        try (FileChannel channel = FileChannel.open(tableFile().toPath())) {
+            table = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        if (table.getInt(0) != MAGIC || table.getInt(4) != VERSION) {
+            throw Utils.error("Corrupt commit id table.");
+        }
+        count = table.getInt(8);
+        byte[] log = logFile().isFile() ? Utils.readContents(logFile()) : new byte[0];
+        logLength = log.length - log.length % HashEngine.rawIdLength();
+        logged = new TreeSet<>();
+        for (int at = 0; at < logLength; at += HashEngine.rawIdLength()) {
+            logged.add(Utils.toHexId(log, at, HashEngine.rawIdLength()));
+        }
+    }
+
+    /** Returns the ids of up to LIMIT commits whose ids start with the
+     *  hexadecimal PREFIX, in lexicographic order. */
+    static List<String> resolve(String prefix, int limit) {
+        if (prefix.isEmpty() || prefix.length() > HashEngine.idLength()
+                || !prefix.chars().allMatch(c -> Character.digit(c, 16) >= 0)) {
+            return new ArrayList<>();
+        }
+        prefix = prefix.toLowerCase();
+        load();
+        TreeSet<String> found = new TreeSet<>();
+        byte[] low = lowestWithPrefix(prefix);
+        byte[] rawId = new byte[HashEngine.rawIdLength()];
+        for (int i = lowerBound(low); i < count && found.size() < limit; i += 1) {
+            table.get(HEADER + i * HashEngine.rawIdLength(), rawId);
+            String id = Utils.toHexId(rawId, 0, rawId.length);
+            if (!id.startsWith(prefix)) {
+                break;
+            }
+            found.add(id);
+        }
+        int fromLog = 0;
+        for (String id : logged.tailSet(prefix)) {
+            if (fromLog == limit || !id.startsWith(prefix)) {
+                break;
+            }
+            found.add(id);
+            fromLog += 1;
+        }
+        List<String> result = new ArrayList<>(found);
+        return result.size() > limit ? result.subList(0, limit) : result;
+    }
+
+    /** Returns whether the index holds the commit with the given ID. */
+    static boolean contains(String id) {
+        load();
+        if (logged.contains(id)) {
+            return true;
+        }
+        byte[] rawId = Utils.toRawId(id);
+        int i = lowerBound(rawId);
+        if (i == count) {
+            return false;
+        }
+        byte[] rowId = new byte[HashEngine.rawIdLength()];
+        table.get(HEADER + i * HashEngine.rawIdLength(), rowId);
+        return Arrays.equals(rowId, rawId);
+    }
+
+    /** Returns the smallest raw id starting with the hexadecimal PREFIX. */
+    private static byte[] lowestWithPrefix(String prefix) {
+        byte[] result = new byte[HashEngine.rawIdLength()];
+        for (int i = 0; i < prefix.length(); i += 1) {
+            int nibble = Character.digit(prefix.charAt(i), 16);
+            result[i / 2] |= (byte) (i % 2 == 0 ? nibble << 4 : nibble);
+        }
+        return result;
+    }
+
+    /** Returns the position of the first id in the table not less than RAWID. */
+    private static int lowerBound(byte[] rawId) {
+        byte[] rowId = new byte[HashEngine.rawIdLength()];
+        int lo = 0, hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            table.get(HEADER + mid * HashEngine.rawIdLength(), rowId);
+            if (Arrays.compareUnsigned(rowId, rawId) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** Records the commit with the given ID when the current command
+     *  commits, unless the index holds it by then. */
+    static void add(String id) {
+        Transaction.append(() -> append(id));
+    }
+
+    /** Records the commit with the given ID, unless the index holds it. */
+    private static void append(String id) {
+        if (contains(id)) {
+            return;
+        }
+        try (RandomAccessFile out = new RandomAccessFile(logFile(), "rw")) {
+            out.seek(logLength);
+            out.write(Utils.toRawId(id));
+            if (Transaction.fsync()) {
+                out.getChannel().force(false);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        logged.add(id);
+        logLength += HashEngine.rawIdLength();
+        if (logged.size() >= MERGE_THRESHOLD) {
+            merge();
+        }
+    }
+
+    /** Merges the log into the table and empties the log. */
+    private static void merge() {
+        load();
+        List<String> pending = new ArrayList<>(logged);
+        byte[] rawId = new byte[HashEngine.rawIdLength()];
+        List<String> merged = new ArrayList<>(count + pending.size());
+        int next = 0;
+        for (int i = 0; i < count; i += 1) {
+            table.get(HEADER + i * HashEngine.rawIdLength(), rawId);
+            String id = Utils.toHexId(rawId, 0, rawId.length);
+            while (next < pending.size() && pending.get(next).compareTo(id) < 0) {
+                merged.add(pending.get(next));
+                next += 1;
+            }
+            if (next < pending.size() && pending.get(next).equals(id)) {
+                next += 1;
+            }
+            merged.add(id);
+        }
+        merged.addAll(pending.subList(next, pending.size()));
+        write(merged);
+    }
+
+    /** Writes the table afresh from every commit in the object store, and
+     *  empties the log. */
+    static void rebuild() {
+        rebuild(ObjectStore.list(ObjectStore.Kind.COMMIT));
+    }
+
+    /** Writes the table afresh from IDS, a sorted list of commit ids, and
+     *  empties the log. */
+    static void rebuild(List<String> ids) {
+        write(ids);
+    }
+
+    /** Replaces the table with the sorted list IDS and empties the log. */
+    private static void write(List<String> ids) {
+        File temp = Utils.join(Repository.GITLET_DIR, "commit-ids.tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(temp.toPath())))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(ids.size());
+            for (String id : ids) {
+                out.write(Utils.toRawId(id));
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        try {
+            Files.move(temp.toPath(), tableFile().toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        logFile().delete();
+        reset();
+    }
+}
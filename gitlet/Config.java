@@ -0,0 +1,71 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Properties;
+
+/** The settings of a repository, kept as key=value lines in .gitlet/config.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class Config {
+    /** The settings of the current repository, loaded on first use. */
+    private static Properties properties;
+
+    /** Forgets the loaded settings, so that they are reloaded on next use. */
+    static synchronized void reset() {
+        properties = null;
+    }
+
+    /** Returns the file holding the settings. */
+    private static File file() {
+        return Utils.join(Repository.GITLET_DIR, "config");
+    }
+
+    /** Returns the settings of the current repository. */
+    private static synchronized Properties properties() {
+        if (properties == null) {
+            properties = new Properties();
+            File file = file();
+            if (file.isFile()) {
+                try (Reader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                    properties.load(in);
+                } catch (IOException excp) {
+                    throw new IllegalArgumentException(excp.getMessage());
+                }
+            }
+        }
+        return properties;
+    }
+
+    /** Returns the value of KEY, or DEFAULTVALUE if it is not set. */
+    static String get(String key, String defaultValue) {
+        return properties().getProperty(key, defaultValue);
+    }
+
+    /** Returns the value of KEY as an int, or DEFAULTVALUE if it is not set
+     *  or is not a number. */
+    static int getInt(String key, int defaultValue) {
+        try {
+            return Integer.parseInt(get(key, String.valueOf(defaultValue)).trim());
+        } catch (NumberFormatException excp) {
+            return defaultValue;
+        }
+    }
+
+    /** Sets KEY to VALUE, saving the settings when the current command
+     *  commits. */
+    static synchronized void set(String key, String value) {
+        properties().setProperty(key, value);
+        try (Writer out = new OutputStreamWriter(Transaction.open(file()), StandardCharsets.UTF_8)) {
+            properties().store(out, null);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+}
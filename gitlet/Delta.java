@@ -0,0 +1,166 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/** Binary deltas between versions of a file.
+ *
+ *  A delta starts with the lengths of its base and of its result, followed by
+ *  instructions that rebuild the result: COPY with an offset and a length
+ *  copies bytes of the base, and INSERT with a length is followed by that
+ *  many literal bytes.  All numbers are unsigned varints.
+ *
+ *  Deltas are found by indexing the base in BLOCK-byte blocks and sliding a
+ *  rolling hash over the target; every hit is checked byte for byte and
+ *  extended in both directions.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class Delta {
+    /** The instruction copying from the base. */
+    private static final int COPY = 0;
+    /** The instruction inserting literal bytes. */
+    private static final int INSERT = 1;
+    /** The length of the blocks of the base that are indexed. */
+    private static final int BLOCK = 16;
+    /** The multiplier of the rolling hash. */
+    private static final int PRIME = 31;
+
+    /** Returns a delta turning BASE into TARGET. */
+    static byte[] compute(byte[] base, byte[] target) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(target.length / 8 + 16);
+        writeVarint(out, base.length);
+        writeVarint(out, target.length);
+        if (base.length < BLOCK || target.length < BLOCK) {
+            writeInsert(out, target, 0, target.length);
+            return out.toByteArray();
+        }
+        int bits = 32 - Integer.numberOfLeadingZeros(base.length / BLOCK);
+        int[] index = new int[1 << bits];
+        Arrays.fill(index, -1);
+        for (int j = base.length - BLOCK - (base.length % BLOCK); j >= 0; j -= BLOCK) {
+            index[slot(hash(base, j), bits)] = j;
+        }
+        int power = 1;
+        for (int k = 0; k < BLOCK; k += 1) {
+            power *= PRIME;
+        }
+        int pending = 0;
+        int i = 0;
+        int h = hash(target, 0);
+        while (i + BLOCK <= target.length) {
+            int j = index[slot(h, bits)];
+            if (j >= 0 && matches(base, j, target, i)) {
+                int start = i, from = j;
+                while (start > pending && from > 0 && base[from - 1] == target[start - 1]) {
+                    start -= 1;
+                    from -= 1;
+                }
+                int end = i + BLOCK, to = j + BLOCK;
+                while (end < target.length && to < base.length && base[to] == target[end]) {
+                    end += 1;
+                    to += 1;
+                }
+                writeInsert(out, target, pending, start - pending);
+                out.write(COPY);
+                writeVarint(out, from);
+                writeVarint(out, end - start);
+                i = end;
+                pending = end;
+                if (i + BLOCK <= target.length) {
+                    h = hash(target, i);
+                }
+                continue;
+            }
+            if (i + BLOCK < target.length) {
+                h = h * PRIME + target[i + BLOCK] - power * target[i];
+            }
+            i += 1;
+        }
+        writeInsert(out, target, pending, target.length - pending);
+        return out.toByteArray();
+    }
+
+    /** Returns the result of applying DELTA to BASE. */
+    static byte[] apply(byte[] base, byte[] delta) {
+        int[] pos = {0};
+        int baseLength = (int) readVarint(delta, pos);
+        int resultLength = (int) readVarint(delta, pos);
+        if (baseLength != base.length) {
+            throw Utils.error("Delta does not match its base.");
+        }
+        byte[] result = new byte[resultLength];
+        int op = 0;
+        while (pos[0] < delta.length) {
+            int instruction = delta[pos[0]];
+            pos[0] += 1;
+            if (instruction == COPY) {
+                int offset = (int) readVarint(delta, pos);
+                int length = (int) readVarint(delta, pos);
+                System.arraycopy(base, offset, result, op, length);
+                op += length;
+            } else if (instruction == INSERT) {
+                int length = (int) readVarint(delta, pos);
+                System.arraycopy(delta, pos[0], result, op, length);
+                pos[0] += length;
+                op += length;
+            } else {
+                throw Utils.error("Corrupt delta.");
+            }
+        }
+        if (op != resultLength) {
+            throw Utils.error("Corrupt delta.");
+        }
+        return result;
+    }
+
+    /** Returns the hash of the BLOCK bytes of DATA at I. */
+    private static int hash(byte[] data, int i) {
+        int h = 0;
+        for (int k = i; k < i + BLOCK; k += 1) {
+            h = h * PRIME + data[k];
+        }
+        return h;
+    }
+
+    /** Returns the slot of hash H in an index of 2 ** BITS slots. */
+    private static int slot(int h, int bits) {
+        return (h * 0x9e3779b1) >>> (32 - bits);
+    }
+
+    /** Returns whether the BLOCK bytes of BASE at J equal those of TARGET at I. */
+    private static boolean matches(byte[] base, int j, byte[] target, int i) {
+        return Arrays.equals(base, j, j + BLOCK, target, i, i + BLOCK);
+    }
+
+    /** Writes an instruction inserting the LENGTH bytes of DATA at START. */
+    private static void writeInsert(ByteArrayOutputStream out, byte[] data, int start, int length) {
+        if (length > 0) {
+            out.write(INSERT);
+            writeVarint(out, length);
+            out.write(data, start, length);
+        }
+    }
+
+    /** Writes VALUE to OUT as an unsigned varint. */
+    static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /** Reads an unsigned varint from DATA at POS[0], advancing POS[0]. */
+    static long readVarint(byte[] data, int[] pos) {
+        long result = 0;
+        for (int shift = 0;; shift += 7) {
+            byte b = data[pos[0]];
+            pos[0] += 1;
+            result |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+    }
+}
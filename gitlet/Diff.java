@@ -0,0 +1,305 @@
+package gitlet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/** Finds a shortest set of changes turning one text into another, line by
+ *  line, with Myers' linear-space algorithm.
+ *
+ *  Lines are compared by a 64-bit hash, so a text is held as one long per
+ *  line however long its lines are.  The search finds the middle of a
+ *  shortest edit path and recurses on either side of it, the earlier side
+ *  first, so changes are reported in order as they are found.  Past a cost
+ *  of about the square root of the texts' length it splits where it has
+ *  got furthest instead, which keeps very different texts from taking
+ *  quadratic time at the price of a diff that may not be the shortest, and
+ *  bounds the diagonals, and so the memory, each split needs.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class Diff {
+    /** The smallest cost at which the search settles for a good split. */
+    static final int MIN_COST_LIMIT = 4096;
+
+    /** A run of lines of the old text, [oldStart, oldEnd), replaced by a run
+     *  of lines of the new text, [newStart, newEnd); either run may be empty. */
+    static class Change {
+        final int oldStart, oldEnd, newStart, newEnd;
+
+        Change(int oldStart, int oldEnd, int newStart, int newEnd) {
+            this.oldStart = oldStart;
+            this.oldEnd = oldEnd;
+            this.newStart = newStart;
+            this.newEnd = newEnd;
+        }
+    }
+
+    /** The hash of each line of a text.  A last line lacking its newline
+     *  hashes differently from the same line with one. */
+    static class Lines {
+        /** The FNV-1a offset basis and prime. */
+        private static final long BASIS = 0xcbf29ce484222325L, PRIME = 0x100000001b3L;
+        /** Mixed into the hash of a last line lacking its newline. */
+        private static final long NO_NEWLINE = 0x9e3779b97f4a7c15L;
+
+        /** The hash of each line, in its first SIZE elements. */
+        private long[] hashes = new long[64];
+        /** The number of lines. */
+        private int size;
+
+        /** Returns the lines of the text read from IN, which is closed. */
+        static Lines read(InputStream in) {
+            Lines result = new Lines();
+            byte[] buffer = new byte[1 << 16];
+            long hash = BASIS;
+            boolean partial = false;
+            try (in) {
+                for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                    for (int i = 0; i < n; i += 1) {
+                        byte b = buffer[i];
+                        if (b == '\n') {
+                            result.add(hash);
+                            hash = BASIS;
+                            partial = false;
+                        } else {
+                            hash = (hash ^ (b & 0xff)) * PRIME;
+                            partial = true;
+                        }
+                    }
+                }
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+            if (partial) {
+                result.add(hash ^ NO_NEWLINE);
+            }
+            return result;
+        }
+
+        /** Returns the lines of an empty text. */
+        static Lines empty() {
+            return new Lines();
+        }
+
+        private void add(long hash) {
+            if (size == hashes.length) {
+                hashes = Arrays.copyOf(hashes, size * 2);
+            }
+            hashes[size] = hash;
+            size += 1;
+        }
+
+        /** Returns the number of lines. */
+        int size() {
+            return size;
+        }
+
+        /** Returns the hash of line I. */
+        long hash(int i) {
+            return hashes[i];
+        }
+    }
+
+    /** The hashes of the old and new lines. */
+    private final long[] a, b;
+    /** The furthest x reached on each diagonal x - y, plus OFFSET, by the
+     *  forward and the backward search. */
+    private int[] forward = new int[0], backward = new int[0];
+    /** The index in FORWARD and BACKWARD of diagonal 0 in the current split. */
+    private int offset;
+    /** The cost past which the search settles for a good split. */
+    private final int costLimit;
+    /** Receives the changes found. */
+    private final Consumer<Change> out;
+    /** The change found last and not yet reported, which the next change
+     *  may extend, or null. */
+    private Change pending;
+
+    private Diff(Lines oldLines, Lines newLines, Consumer<Change> out) {
+        a = oldLines.hashes;
+        b = newLines.hashes;
+        int n = oldLines.size, m = newLines.size;
+        costLimit = Math.max(MIN_COST_LIMIT, (int) Math.sqrt((double) n + m));
+        this.out = out;
+    }
+
+    /** Reports to OUT, in order, the changes turning OLDLINES into
+     *  NEWLINES.  Changes are separated by at least one unchanged line. */
+    static void diff(Lines oldLines, Lines newLines, Consumer<Change> out) {
+        Diff diff = new Diff(oldLines, newLines, out);
+        diff.compare(0, oldLines.size, 0, newLines.size);
+        if (diff.pending != null) {
+            out.accept(diff.pending);
+        }
+    }
+
+    /** Returns, in order, the changes turning OLDLINES into NEWLINES. */
+    static List<Change> changes(Lines oldLines, Lines newLines) {
+        List<Change> result = new ArrayList<>();
+        diff(oldLines, newLines, result::add);
+        return result;
+    }
+
+    /** Finds the changes turning old lines [XOFF, XLIM) into new lines
+     *  [YOFF, YLIM). */
+    private void compare(int xoff, int xlim, int yoff, int ylim) {
+        while (true) {
+            while (xoff < xlim && yoff < ylim && a[xoff] == b[yoff]) {
+                xoff += 1;
+                yoff += 1;
+            }
+            while (xoff < xlim && yoff < ylim && a[xlim - 1] == b[ylim - 1]) {
+                xlim -= 1;
+                ylim -= 1;
+            }
+            if (xoff == xlim || yoff == ylim) {
+                if (xoff < xlim || yoff < ylim) {
+                    report(xoff, xlim, yoff, ylim);
+                }
+                return;
+            }
+            long split = split(xoff, xlim, yoff, ylim);
+            int xmid = (int) (split >>> 32), ymid = (int) split;
+            if ((xmid == xoff && ymid == yoff) || (xmid == xlim && ymid == ylim)) {
+                report(xoff, xlim, yoff, ylim);
+                return;
+            }
+            compare(xoff, xmid, yoff, ymid);
+            xoff = xmid;
+            yoff = ymid;
+        }
+    }
+
+    /** Returns a point (x, y) on a short edit path from (XOFF, YOFF) to
+     *  (XLIM, YLIM), packed as x in the high and y in the low half of a
+     *  long: the middle of a shortest path, or where the search got
+     *  furthest once its cost passes the limit.  Both runs are nonempty. */
+    private long split(int xoff, int xlim, int yoff, int ylim) {
+        int dmin = xoff - ylim, dmax = xlim - yoff;
+        int fmid = xoff - yoff, bmid = xlim - ylim;
+        int fmin = fmid, fmax = fmid, bmin = bmid, bmax = bmid;
+        boolean odd = ((fmid - bmid) & 1) != 0;
+        int lowest = Math.max(dmin - 1, Math.min(fmid, bmid) - costLimit - 2);
+        int highest = Math.min(dmax + 1, Math.max(fmid, bmid) + costLimit + 2);
+        if (forward.length < highest - lowest + 1) {
+            forward = new int[highest - lowest + 1];
+            backward = new int[highest - lowest + 1];
+        }
+        offset = -lowest;
+        forward[offset + fmid] = xoff;
+        backward[offset + bmid] = xlim;
+        for (int cost = 1;; cost += 1) {
+            if (fmin > dmin) {
+                fmin -= 1;
+                forward[offset + fmin - 1] = -1;
+            } else {
+                fmin += 1;
+            }
+            if (fmax < dmax) {
+                fmax += 1;
+                forward[offset + fmax + 1] = -1;
+            } else {
+                fmax -= 1;
+            }
+            for (int d = fmax; d >= fmin; d -= 2) {
+                int low = forward[offset + d - 1], high = forward[offset + d + 1];
+                int x = low >= high ? low + 1 : high;
+                int y = x - d;
+                while (x < xlim && y < ylim && a[x] == b[y]) {
+                    x += 1;
+                    y += 1;
+                }
+                forward[offset + d] = x;
+                if (odd && bmin <= d && d <= bmax && backward[offset + d] <= x) {
+                    return pack(x, y);
+                }
+            }
+            if (bmin > dmin) {
+                bmin -= 1;
+                backward[offset + bmin - 1] = Integer.MAX_VALUE;
+            } else {
+                bmin += 1;
+            }
+            if (bmax < dmax) {
+                bmax += 1;
+                backward[offset + bmax + 1] = Integer.MAX_VALUE;
+            } else {
+                bmax -= 1;
+            }
+            for (int d = bmax; d >= bmin; d -= 2) {
+                int low = backward[offset + d - 1], high = backward[offset + d + 1];
+                int x = low < high ? low : high - 1;
+                int y = x - d;
+                while (x > xoff && y > yoff && a[x - 1] == b[y - 1]) {
+                    x -= 1;
+                    y -= 1;
+                }
+                backward[offset + d] = x;
+                if (!odd && fmin <= d && d <= fmax && x <= forward[offset + d]) {
+                    return pack(x, y);
+                }
+            }
+            if (cost >= costLimit) {
+                return furthest(xoff, xlim, yoff, ylim, fmin, fmax, bmin, bmax);
+            }
+        }
+    }
+
+    /** Returns the point, packed as by split, that the forward or backward
+     *  search, over diagonals [FMIN, FMAX] and [BMIN, BMAX], got furthest
+     *  from its start. */
+    private long furthest(int xoff, int xlim, int yoff, int ylim,
+                          int fmin, int fmax, int bmin, int bmax) {
+        int forwardBest = -1, forwardX = xoff;
+        for (int d = fmax; d >= fmin; d -= 2) {
+            int x = Math.min(forward[offset + d], xlim);
+            int y = x - d;
+            if (y > ylim) {
+                x = ylim + d;
+                y = ylim;
+            }
+            if (x + y > forwardBest) {
+                forwardBest = x + y;
+                forwardX = x;
+            }
+        }
+        int backwardBest = Integer.MAX_VALUE, backwardX = xlim;
+        for (int d = bmax; d >= bmin; d -= 2) {
+            int x = Math.max(xoff, backward[offset + d]);
+            int y = x - d;
+            if (y < yoff) {
+                x = yoff + d;
+                y = yoff;
+            }
+            if (x + y < backwardBest) {
+                backwardBest = x + y;
+                backwardX = x;
+            }
+        }
+        if (forwardBest - (xoff + yoff) > (xlim + ylim) - backwardBest) {
+            return pack(forwardX, forwardBest - forwardX);
+        }
+        return pack(backwardX, backwardBest - backwardX);
+    }
+
+    private static long pack(int x, int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+
+    /** Reports the change of old lines [XOFF, XLIM) to new lines [YOFF,
+     *  YLIM), joining it to the pending change if they touch. */
+    private void report(int xoff, int xlim, int yoff, int ylim) {
+        if (pending != null && pending.oldEnd == xoff && pending.newEnd == yoff) {
+            pending = new Change(pending.oldStart, xlim, pending.newStart, ylim);
+            return;
+        }
+        if (pending != null) {
+            out.accept(pending);
+        }
+        pending = new Change(xoff, xlim, yoff, ylim);
+    }
+}
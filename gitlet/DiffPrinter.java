@@ -0,0 +1,153 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/** Prints the differences between two versions of a file in the unified
+ *  format, with three lines of context around each change.
+ *
+ *  Each version is read twice: once to hash its lines for Diff, and once,
+ *  front to back, to copy out the lines of each hunk as soon as the changes
+ *  it covers are known.  Neither version is ever held in memory.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class DiffPrinter {
+    /** The number of unchanged lines shown around each change. */
+    private static final int CONTEXT = 3;
+    /** The marker following a printed last line lacking its newline. */
+    private static final byte[] NO_NEWLINE =
+            "\n\\ No newline at end of file\n".getBytes(StandardCharsets.UTF_8);
+
+    /** Where the differences are printed. */
+    private final OutputStream out;
+    /** The names of the versions of the file being printed, if they are not
+     *  printed yet, or null. */
+    private String header;
+
+    /** A printer writing to OUT. */
+    DiffPrinter(OutputStream out) {
+        this.out = out;
+    }
+
+    /** Opens a stream over the blob with the given ID, exiting with an error
+     *  if the store does not hold it. */
+    static Supplier<InputStream> blob(String id) {
+        return () -> {
+            Blob blob = Blob.readBlob(id);
+            if (blob == null) {
+                Main.exitWithError("Missing blob " + id + ".");
+            }
+            return blob.open();
+        };
+    }
+
+    /** Opens a stream over FILE. */
+    static Supplier<InputStream> file(File file) {
+        return () -> {
+            try {
+                return Files.newInputStream(file.toPath());
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+        };
+    }
+
+    /** Prints the differences turning the old version of the file at PATH,
+     *  opened by OLDVERSION, into the new one, opened by NEWVERSION.  A
+     *  version that is null is absent.  Prints nothing if they are the same. */
+    void print(String path, Supplier<InputStream> oldVersion, Supplier<InputStream> newVersion) {
+        Diff.Lines oldLines = oldVersion == null ? Diff.Lines.empty() : Diff.Lines.read(oldVersion.get());
+        Diff.Lines newLines = newVersion == null ? Diff.Lines.empty() : Diff.Lines.read(newVersion.get());
+        header = "--- " + (oldVersion == null ? "/dev/null" : "a/" + path) + "\n"
+                + "+++ " + (newVersion == null ? "/dev/null" : "b/" + path) + "\n";
+        try (LineReader oldReader = new LineReader(oldVersion);
+             LineReader newReader = new LineReader(newVersion)) {
+            List<Diff.Change> hunk = new ArrayList<>();
+            Diff.diff(oldLines, newLines, change -> {
+                if (!hunk.isEmpty()
+                        && change.oldStart - hunk.get(hunk.size() - 1).oldEnd > 2 * CONTEXT) {
+                    hunk(hunk, oldLines.size(), oldReader, newReader);
+                    hunk.clear();
+                }
+                hunk.add(change);
+            });
+            if (!hunk.isEmpty()) {
+                hunk(hunk, oldLines.size(), oldReader, newReader);
+            }
+            out.flush();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Prints the hunk covering CHANGES, in an old version of OLDSIZE lines,
+     *  reading its lines from OLDREADER and NEWREADER. */
+    private void hunk(List<Diff.Change> changes, int oldSize,
+                      LineReader oldReader, LineReader newReader) {
+        Diff.Change first = changes.get(0);
+        Diff.Change last = changes.get(changes.size() - 1);
+        int oldStart = Math.max(0, first.oldStart - CONTEXT);
+        int oldEnd = Math.min(oldSize, last.oldEnd + CONTEXT);
+        int newStart = first.newStart - (first.oldStart - oldStart);
+        int newEnd = last.newEnd + (oldEnd - last.oldEnd);
+        if (header != null) {
+            write(header);
+            header = null;
+        }
+        write("@@ -" + range(oldStart, oldEnd) + " +" + range(newStart, newEnd) + " @@\n");
+        oldReader.skipTo(oldStart);
+        newReader.skipTo(newStart);
+        for (Diff.Change change : changes) {
+            while (oldReader.line() < change.oldStart) {
+                line(' ', oldReader);
+                newReader.skip(1);
+            }
+            while (oldReader.line() < change.oldEnd) {
+                line('-', oldReader);
+            }
+            while (newReader.line() < change.newEnd) {
+                line('+', newReader);
+            }
+        }
+        while (oldReader.line() < oldEnd) {
+            line(' ', oldReader);
+            newReader.skip(1);
+        }
+    }
+
+    /** Prints PREFIX and the next line of READER. */
+    private void line(char prefix, LineReader reader) {
+        try {
+            out.write(prefix);
+            if (!reader.copy(out)) {
+                out.write(NO_NEWLINE);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the unified-format range of lines [START, END). */
+    private static String range(int start, int end) {
+        if (end - start == 1) {
+            return String.valueOf(start + 1);
+        }
+        return (end == start ? start : start + 1) + "," + (end - start);
+    }
+
+    private void write(String text) {
+        try {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+}
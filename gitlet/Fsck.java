@@ -0,0 +1,179 @@
+package gitlet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/** Checks the integrity of the repository.
+ *
+ *  Every stored object is streamed through the repository's hash on a
+ *  fork-join pool of fsck.threads threads, every processor unless set, and
+ *  reported corrupt if it cannot be read or does not hash to its id.  Then the history of
+ *  every branch, HEAD and the stage is walked: an object named there but
+ *  not stored is missing, and a stored object nothing reaches is dangling.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class Fsck {
+    /** The size of the buffer objects are streamed through. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** The problems found, one line each. */
+    private static final Set<String> PROBLEMS = ConcurrentHashMap.newKeySet();
+
+    /** Checks the current repository and prints the problems found, and
+     *  how fast the objects were verified. */
+    static void run() {
+        PROBLEMS.clear();
+        Map<ObjectStore.Kind, List<String>> stored = new EnumMap<>(ObjectStore.Kind.class);
+        int objects = 0;
+        long bytes = 0;
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(Config.getInt("fsck.threads",
+                Runtime.getRuntime().availableProcessors()));
+        try {
+            for (ObjectStore.Kind kind : ObjectStore.Kind.values()) {
+                List<String> ids = ObjectStore.list(kind);
+                stored.put(kind, ids);
+                objects += ids.size();
+                bytes += pool.submit(() -> ids.parallelStream()
+                        .mapToLong(id -> verify(kind, id)).sum()).get();
+            }
+        } catch (InterruptedException | ExecutionException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            pool.shutdown();
+        }
+        double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+        Map<ObjectStore.Kind, Set<String>> reachable = connectivity();
+        for (ObjectStore.Kind kind : ObjectStore.Kind.values()) {
+            for (String id : stored.get(kind)) {
+                if (!reachable.get(kind).contains(id)) {
+                    PROBLEMS.add("dangling " + name(kind) + " " + id);
+                }
+            }
+        }
+        for (String problem : new TreeSet<>(PROBLEMS)) {
+            System.out.println(problem);
+        }
+        System.out.printf("Checked %d objects, %d bytes, in %.0f ms: %.0f objects/s, %.1f MB/s.%n",
+                objects, bytes, seconds * 1000, objects / seconds, bytes / 1e6 / seconds);
+    }
+
+    /** Streams the object of KIND with the given ID through the hash, reports
+     *  it corrupt if it cannot be read or does not hash to ID, and returns
+     *  the number of bytes read. */
+    private static long verify(ObjectStore.Kind kind, String id) {
+        MessageDigest md = HashEngine.digest();
+        long length = 0;
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = ObjectStore.open(kind, id)) {
+            for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                md.update(buffer, 0, n);
+                length += n;
+            }
+        } catch (IOException | RuntimeException excp) {
+            PROBLEMS.add("corrupt " + name(kind) + " " + id + ": " + excp.getMessage());
+            return length;
+        }
+        if (!HashEngine.hex(md.digest()).equals(id)) {
+            PROBLEMS.add("corrupt " + name(kind) + " " + id + ": hash mismatch");
+        }
+        return length;
+    }
+
+    /** Walks the history of every branch, HEAD and the stage, reporting
+     *  missing objects, and returns the stored objects reached. */
+    private static Map<ObjectStore.Kind, Set<String>> connectivity() {
+        Map<ObjectStore.Kind, Set<String>> reachable = new EnumMap<>(ObjectStore.Kind.class);
+        for (ObjectStore.Kind kind : ObjectStore.Kind.values()) {
+            reachable.put(kind, ConcurrentHashMap.newKeySet());
+        }
+        Map<String, String> refs = new HashMap<>();
+        for (Map.Entry<String, String> branch : Refs.all().entrySet()) {
+            refs.put("branch " + branch.getKey(), branch.getValue());
+        }
+        refs.put("HEAD", Utils.readContentsAsString(Utils.join(Repository.GITLET_DIR, "HEAD")));
+        refs.entrySet().parallelStream()
+                .forEach(ref -> walkHistory(ref.getKey(), ref.getValue(), reachable));
+        StagingArea.readStage();
+        for (Map.Entry<String, String> entry : StagingArea.getStaged().entrySet()) {
+            check(ObjectStore.Kind.BLOB, entry.getValue(), "staged " + entry.getKey(), reachable);
+        }
+        return reachable;
+    }
+
+    /** Walks the history of the commit TIP, named by REF, marking what it
+     *  reaches in REACHABLE and reporting what is missing. */
+    private static void walkHistory(String ref, String tip,
+                                    Map<ObjectStore.Kind, Set<String>> reachable) {
+        Deque<String[]> stack = new ArrayDeque<>();
+        stack.push(new String[] {tip, ref});
+        while (!stack.isEmpty()) {
+            String[] top = stack.pop();
+            String id = top[0];
+            if (!check(ObjectStore.Kind.COMMIT, id, top[1], reachable)) {
+                continue;
+            }
+            Commit commit;
+            try {
+                commit = Commit.readCommit(id);
+            } catch (RuntimeException excp) {
+                continue;
+            }
+            walkTree(commit.getTree(), "commit " + id, reachable);
+            for (String parent : commit.getParentIds()) {
+                stack.push(new String[] {parent, "commit " + id});
+            }
+        }
+    }
+
+    /** Marks the tree with the given ID, named by REFERRER, and what it
+     *  reaches in REACHABLE, reporting what is missing. */
+    private static void walkTree(String id, String referrer,
+                                 Map<ObjectStore.Kind, Set<String>> reachable) {
+        if (!check(ObjectStore.Kind.TREE, id, referrer, reachable)) {
+            return;
+        }
+        Tree tree;
+        try {
+            tree = Tree.read(id);
+        } catch (RuntimeException excp) {
+            return;
+        }
+        for (Map.Entry<String, String> file : tree.getFiles().entrySet()) {
+            check(ObjectStore.Kind.BLOB, file.getValue(), "tree " + id + " " + file.getKey(), reachable);
+        }
+        for (String directory : tree.getDirectories().values()) {
+            walkTree(directory, "tree " + id, reachable);
+        }
+    }
+
+    /** Marks the object of KIND with the given ID, named by REFERRER, in
+     *  REACHABLE, reporting it if it is missing.  Returns whether it is
+     *  stored and was not marked before. */
+    private static boolean check(ObjectStore.Kind kind, String id, String referrer,
+                                 Map<ObjectStore.Kind, Set<String>> reachable) {
+        if (!ObjectStore.contains(kind, id)) {
+            PROBLEMS.add("missing " + name(kind) + " " + id + " (from " + referrer + ")");
+            return false;
+        }
+        return reachable.get(kind).add(id);
+    }
+
+    /** Returns the name of KIND in reports. */
+    private static String name(ObjectStore.Kind kind) {
+        return kind.name().toLowerCase();
+    }
+}
@@ -0,0 +1,99 @@
+package gitlet;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Removes the objects no branch, HEAD or the stage can reach.
+ *
+ *  Marking walks the history of each branch tip on its own thread, through
+ *  every parent, tree and blob; the walks share their sets of marked
+ *  objects, so each object is read once however many tips reach it.
+ *  Sweeping then removes the unmarked objects stored before the grace
+ *  period, so that objects a concurrent add or commit has just written, and
+ *  not yet linked, survive.  Younger unmarked objects are left where they
+ *  are rather than repacked, so that their grace period is not restarted;
+ *  storing an object again does restart it.  Nothing is removed until the
+ *  command commits, after any new pack is on disk.  The grace period is
+ *  gc.grace seconds, two weeks unless set, or the one given to the command.
+ *  Loose branches are folded into the packed table of Refs as well.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class GarbageCollector {
+    /** The default grace period, in seconds. */
+    private static final int DEFAULT_GRACE = 14 * 24 * 60 * 60;
+
+    /** Collects the garbage of the current repository, sparing objects
+     *  stored in the last GRACE seconds, or in the configured grace period
+     *  if GRACE is negative, and prints what was removed. */
+    static void run(long grace) {
+        if (grace < 0) {
+            grace = Config.getInt("gc.grace", DEFAULT_GRACE);
+        }
+        long cutoff = System.currentTimeMillis() - grace * 1000;
+        Map<ObjectStore.Kind, Set<String>> reachable = new EnumMap<>(ObjectStore.Kind.class);
+        for (ObjectStore.Kind kind : ObjectStore.Kind.values()) {
+            reachable.put(kind, ConcurrentHashMap.newKeySet());
+        }
+        Refs.pack();
+        List<String> tips = new ArrayList<>(Refs.all().values());
+        tips.add(Utils.readContentsAsString(Utils.join(Repository.GITLET_DIR, "HEAD")));
+        tips.parallelStream().forEach(tip -> markHistory(tip, reachable));
+        StagingArea.readStage();
+        reachable.get(ObjectStore.Kind.BLOB).addAll(StagingArea.getStaged().values());
+        long before = ObjectStore.diskUsage();
+        Map<ObjectStore.Kind, Integer> removed = ObjectStore.prune(reachable, cutoff);
+        long reclaimed = before - ObjectStore.diskUsage();
+        if (removed.get(ObjectStore.Kind.COMMIT) > 0) {
+            CommitGraph.rebuild();
+            CommitGraph.reset();
+            CommitIndex.rebuild();
+            CommitIndex.reset();
+            MessageIndex.rebuild();
+        }
+        System.out.printf("Removed %d commits, %d trees and %d blobs, reclaiming %d bytes.%n",
+                removed.get(ObjectStore.Kind.COMMIT), removed.get(ObjectStore.Kind.TREE),
+                removed.get(ObjectStore.Kind.BLOB), reclaimed);
+    }
+
+    /** Marks in REACHABLE the commit TIP and every commit, tree and blob it
+     *  reaches, stopping at commits already marked. */
+    private static void markHistory(String tip, Map<ObjectStore.Kind, Set<String>> reachable) {
+        Set<String> commits = reachable.get(ObjectStore.Kind.COMMIT);
+        Deque<String> stack = new ArrayDeque<>();
+        stack.push(tip);
+        while (!stack.isEmpty()) {
+            String id = stack.pop();
+            if (!commits.add(id)) {
+                continue;
+            }
+            Commit commit = Commit.readCommit(id);
+            if (commit == null) {
+                continue;
+            }
+            markTree(commit.getTree(), reachable);
+            for (String parent : commit.getParentIds()) {
+                stack.push(parent);
+            }
+        }
+    }
+
+    /** Marks in REACHABLE the tree with the given ID and every tree and blob
+     *  under it, stopping at trees already marked. */
+    private static void markTree(String id, Map<ObjectStore.Kind, Set<String>> reachable) {
+        if (!reachable.get(ObjectStore.Kind.TREE).add(id)) {
+            return;
+        }
+        Tree tree = Tree.read(id);
+        reachable.get(ObjectStore.Kind.BLOB).addAll(tree.getFiles().values());
+        for (String directory : tree.getDirectories().values()) {
+            markTree(directory, reachable);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package gitlet;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/** Computes object ids with the hash algorithm of the current repository.
+ *
+ *  A repository records its algorithm as core.hash at init; repositories
+ *  made before then use SHA-1.  Each thread keeps one digest per algorithm
+ *  and reuses it for every id it computes, and ids are converted to and
+ *  from hexadecimal through lookup tables.  The digests come from the JDK,
+ *  whose SHA-1 and SHA-256 use the processor's SHA instructions where the
+ *  JVM supports them.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class HashEngine {
+    /** A hash algorithm an object id may be computed with. */
+    enum Algorithm {
+        SHA1("sha1", "SHA-1", 20),
+        SHA256("sha256", "SHA-256", 32);
+
+        /** The name of the algorithm in core.hash. */
+        private final String configName;
+        /** The name of the algorithm to MessageDigest. */
+        private final String digestName;
+        /** The length of an id in bytes. */
+        private final int length;
+
+        Algorithm(String configName, String digestName, int length) {
+            this.configName = configName;
+            this.digestName = digestName;
+            this.length = length;
+        }
+
+        /** Returns the algorithm called NAME in core.hash, or null if there
+         *  is none. */
+        static Algorithm forName(String name) {
+            for (Algorithm algorithm : values()) {
+                if (algorithm.configName.equals(name)) {
+                    return algorithm;
+                }
+            }
+            return null;
+        }
+
+        /** Returns the name of this algorithm in core.hash. */
+        String configName() {
+            return configName;
+        }
+
+        /** Returns the length of an id in bytes. */
+        int length() {
+            return length;
+        }
+    }
+
+    /** The hexadecimal digits. */
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    /** The value of each hexadecimal digit, by character, and -1 for every
+     *  other character below 128. */
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < HEX.length; i += 1) {
+            VALUES[HEX[i]] = (byte) i;
+            VALUES[Character.toUpperCase(HEX[i])] = (byte) i;
+        }
+    }
+
+    /** This thread's digest of each algorithm, created on first use. */
+    private static final ThreadLocal<MessageDigest[]> DIGESTS =
+            ThreadLocal.withInitial(() -> new MessageDigest[Algorithm.values().length]);
+
+    /** The algorithm of the current repository. */
+    private static Algorithm algorithm = Algorithm.SHA1;
+
+    /** Uses the algorithm recorded by the current repository. */
+    static void load() {
+        Algorithm recorded = Algorithm.forName(Config.get("core.hash", Algorithm.SHA1.configName));
+        if (recorded == null) {
+            throw Utils.error("Unknown hash algorithm %s.", Config.get("core.hash", null));
+        }
+        select(recorded);
+    }
+
+    /** Uses SELECTED for the ids of the current repository. */
+    static void select(Algorithm selected) {
+        algorithm = selected;
+    }
+
+    /** Returns the algorithm of the current repository. */
+    static Algorithm algorithm() {
+        return algorithm;
+    }
+
+    /** Returns the length of an id of the current repository in bytes. */
+    static int rawIdLength() {
+        return algorithm.length;
+    }
+
+    /** Returns the length of an id of the current repository as a
+     *  hexadecimal numeral. */
+    static int idLength() {
+        return 2 * algorithm.length;
+    }
+
+    /** Returns this thread's digest of the current algorithm, reset. */
+    static MessageDigest digest() {
+        return digest(algorithm);
+    }
+
+    /** Returns this thread's digest of SELECTED, reset. */
+    static MessageDigest digest(Algorithm selected) {
+        MessageDigest[] digests = DIGESTS.get();
+        MessageDigest md = digests[selected.ordinal()];
+        if (md == null) {
+            try {
+                md = MessageDigest.getInstance(selected.digestName);
+            } catch (NoSuchAlgorithmException excp) {
+                throw new IllegalArgumentException("System does not support " + selected.digestName);
+            }
+            digests[selected.ordinal()] = md;
+        } else {
+            md.reset();
+        }
+        return md;
+    }
+
+    /** Returns the id of DATA. */
+    static String hash(byte[] data) {
+        MessageDigest md = digest();
+        md.update(data);
+        return hex(md.digest());
+    }
+
+    /** Returns the hexadecimal numeral of the bytes of DIGEST. */
+    static String hex(byte[] digest) {
+        return hex(digest, 0, digest.length);
+    }
+
+    /** Returns the hexadecimal numeral of the LENGTH bytes of BYTES starting
+     *  at OFFSET. */
+    static String hex(byte[] bytes, int offset, int length) {
+        byte[] result = new byte[2 * length];
+        for (int i = 0; i < length; i += 1) {
+            int b = bytes[offset + i];
+            result[2 * i] = HEX[(b >> 4) & 0xf];
+            result[2 * i + 1] = HEX[b & 0xf];
+        }
+        return new String(result, StandardCharsets.ISO_8859_1);
+    }
+
+    /** Returns the bytes denoted by the hexadecimal numeral ID. */
+    static byte[] raw(String id) {
+        byte[] result = new byte[id.length() / 2];
+        for (int i = 0; i < result.length; i += 1) {
+            int high = digit(id.charAt(2 * i)), low = digit(id.charAt(2 * i + 1));
+            result[i] = (byte) ((high << 4) | low);
+        }
+        return result;
+    }
+
+    /** Returns the value of the hexadecimal digit C. */
+    private static int digit(char c) {
+        int value = c < VALUES.length ? VALUES[c] : -1;
+        if (value < 0) {
+            throw new NumberFormatException("Not a hexadecimal digit: " + c);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,88 @@
+package gitlet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.Supplier;
+
+/** Reads the lines of a text front to back, copying some of them out, for
+ *  printing the changes Diff finds without holding the text in memory.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class LineReader implements AutoCloseable {
+    /** Opens the text, or is null if the text is absent and so empty. */
+    private final Supplier<InputStream> text;
+    /** The stream over the text, opened on first use. */
+    private InputStream in;
+    /** The bytes read from IN and not yet consumed, [pos, limit). */
+    private final byte[] buffer = new byte[1 << 16];
+    private int pos, limit;
+    /** The number of lines read. */
+    private int line;
+
+    /** A reader of the text opened by TEXT. */
+    LineReader(Supplier<InputStream> text) {
+        this.text = text;
+    }
+
+    /** Returns the number of the next line, counting from 0. */
+    int line() {
+        return line;
+    }
+
+    /** Skips the next N lines. */
+    void skip(int n) {
+        skipTo(line + n);
+    }
+
+    /** Skips lines up to line N. */
+    void skipTo(int n) {
+        while (line < n) {
+            copy(null);
+        }
+    }
+
+    /** Writes the next line to OUT, or skips it if OUT is null, and returns
+     *  whether it ended with a newline: only the last line may not. */
+    boolean copy(OutputStream out) {
+        boolean found = false;
+        try {
+            if (in == null) {
+                in = text == null ? InputStream.nullInputStream() : text.get();
+            }
+            while (!found) {
+                if (pos == limit) {
+                    pos = 0;
+                    limit = Math.max(0, in.read(buffer));
+                    if (limit == 0) {
+                        break;
+                    }
+                }
+                int end = pos;
+                while (end < limit && buffer[end] != '\n') {
+                    end += 1;
+                }
+                found = end < limit;
+                if (found) {
+                    end += 1;
+                }
+                if (out != null) {
+                    out.write(buffer, pos, end - pos);
+                }
+                pos = end;
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        line += 1;
+        return found;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (in != null) {
+            in.close();
+        }
+    }
+}
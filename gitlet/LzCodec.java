@@ -0,0 +1,314 @@
+package gitlet;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/** A fast LZ77-style codec.
+ *
+ *  The stream is cut into blocks of at most BLOCK_SIZE bytes.  Each block is
+ *  written as its raw length, its stored length and the stored bytes; a block
+ *  whose stored length equals its raw length is kept as is.  A compressed
+ *  block is a series of sequences, each a token byte whose high and low
+ *  nibbles give the literal length and the match length minus MIN_MATCH,
+ *  the literals, and a two-byte little-endian match offset.  Lengths of 15
+ *  continue in following bytes of 255.  The last sequence of a block has
+ *  literals only.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class LzCodec implements Codec {
+    /** The largest number of raw bytes in a block. */
+    static final int BLOCK_SIZE = 1 << 16;
+    /** The shortest match worth encoding. */
+    private static final int MIN_MATCH = 4;
+    /** The number of trailing bytes of a block always written as literals. */
+    private static final int LAST_LITERALS = 5;
+    /** The log of the size of the match-finding hash table. */
+    private static final int HASH_BITS = 14;
+
+    @Override
+    public byte id() {
+        return 2;
+    }
+
+    @Override
+    public String name() {
+        return "lz";
+    }
+
+    @Override
+    public OutputStream encode(OutputStream out) {
+        return new LzOutputStream(out);
+    }
+
+    @Override
+    public InputStream decode(InputStream in) {
+        return new LzInputStream(in);
+    }
+
+    /** Compresses the first LEN bytes of SRC into DST, which must hold at
+     *  least maxCompressedLength(LEN) bytes, and returns the compressed length. */
+    static int compress(byte[] src, int len, byte[] dst, int[] table) {
+        Arrays.fill(table, -1);
+        int anchor = 0, op = 0, i = 0;
+        int limit = len - LAST_LITERALS - MIN_MATCH;
+        while (i < limit) {
+            int h = hash(src, i);
+            int ref = table[h];
+            table[h] = i;
+            if (ref < 0 || readInt(src, ref) != readInt(src, i)) {
+                i += 1;
+                continue;
+            }
+            int matchLen = MIN_MATCH;
+            while (i + matchLen < len - LAST_LITERALS
+                    && src[ref + matchLen] == src[i + matchLen]) {
+                matchLen += 1;
+            }
+            int tokenAt = op;
+            op = writeSequence(src, anchor, i - anchor, dst, op);
+            dst[op] = (byte) (i - ref);
+            dst[op + 1] = (byte) ((i - ref) >>> 8);
+            op = writeLength(dst, op + 2, tokenAt, matchLen - MIN_MATCH, false);
+            i += matchLen;
+            anchor = i;
+        }
+        return writeSequence(src, anchor, len - anchor, dst, op);
+    }
+
+    /** Writes a token and LITERALS bytes of SRC starting at START into DST at
+     *  OP, and returns the new position in DST.  The match length nibble of
+     *  the token is left 0. */
+    private static int writeSequence(byte[] src, int start, int literals, byte[] dst, int op) {
+        int tokenAt = op;
+        dst[tokenAt] = 0;
+        op = writeLength(dst, op + 1, tokenAt, literals, true);
+        System.arraycopy(src, start, dst, op, literals);
+        return op + literals;
+    }
+
+    /** Records LENGTH in the high (if HIGH) or low nibble of the token at
+     *  TOKENAT in DST, writing continuation bytes at OP if needed, and
+     *  returns the position after them. */
+    private static int writeLength(byte[] dst, int op, int tokenAt, int length, boolean high) {
+        int nibble = Math.min(length, 15);
+        dst[tokenAt] |= (byte) (high ? nibble << 4 : nibble);
+        if (length >= 15) {
+            length -= 15;
+            while (length >= 255) {
+                dst[op] = (byte) 255;
+                op += 1;
+                length -= 255;
+            }
+            dst[op] = (byte) length;
+            op += 1;
+        }
+        return op;
+    }
+
+    /** Decompresses the LEN compressed bytes of SRC into DST, which holds
+     *  exactly RAWLEN bytes.  Throws an IOException, reading nothing past LEN
+     *  and writing nothing past RAWLEN, if the bytes are not a valid block. */
+    static void decompress(byte[] src, int len, byte[] dst, int rawLen) throws IOException {
+        int ip = 0, op = 0;
+        while (ip < len) {
+            int token = src[ip] & 0xff;
+            ip += 1;
+            int literals = token >>> 4;
+            if (literals == 15) {
+                int b;
+                do {
+                    if (ip >= len) {
+                        throw new IOException("corrupt lz block");
+                    }
+                    b = src[ip] & 0xff;
+                    ip += 1;
+                    literals += b;
+                } while (b == 255);
+            }
+            if (ip + literals > len || op + literals > rawLen) {
+                throw new IOException("corrupt lz block");
+            }
+            System.arraycopy(src, ip, dst, op, literals);
+            ip += literals;
+            op += literals;
+            if (ip >= len) {
+                break;
+            }
+            if (ip + 2 > len) {
+                throw new IOException("corrupt lz block");
+            }
+            int offset = (src[ip] & 0xff) | (src[ip + 1] & 0xff) << 8;
+            ip += 2;
+            int matchLen = token & 0xf;
+            if (matchLen == 15) {
+                int b;
+                do {
+                    if (ip >= len) {
+                        throw new IOException("corrupt lz block");
+                    }
+                    b = src[ip] & 0xff;
+                    ip += 1;
+                    matchLen += b;
+                } while (b == 255);
+            }
+            matchLen += MIN_MATCH;
+            int ref = op - offset;
+            if (offset == 0 || ref < 0 || op + matchLen > rawLen) {
+                throw new IOException("corrupt lz block");
+            }
+            for (int k = 0; k < matchLen; k += 1) {
+                dst[op + k] = dst[ref + k];
+            }
+            op += matchLen;
+        }
+        if (op != rawLen) {
+            throw new IOException("corrupt lz block");
+        }
+    }
+
+    /** Returns an upper bound on the compressed length of LEN bytes. */
+    static int maxCompressedLength(int len) {
+        return len + len / 255 + 16;
+    }
+
+    /** Returns the hash of the four bytes of SRC at I. */
+    private static int hash(byte[] src, int i) {
+        return (readInt(src, i) * -1640531535) >>> (32 - HASH_BITS);
+    }
+
+    /** Returns the four bytes of SRC at I as a little-endian int. */
+    private static int readInt(byte[] src, int i) {
+        return (src[i] & 0xff) | (src[i + 1] & 0xff) << 8
+                | (src[i + 2] & 0xff) << 16 | (src[i + 3] & 0xff) << 24;
+    }
+
+    /** Buffers what is written into blocks and writes them compressed. */
+    private static class LzOutputStream extends OutputStream {
+        private final DataOutputStream out;
+        private final byte[] block = new byte[BLOCK_SIZE];
+        private final byte[] compressed = new byte[maxCompressedLength(BLOCK_SIZE)];
+        private final int[] table = new int[1 << HASH_BITS];
+        private int size;
+
+        LzOutputStream(OutputStream out) {
+            this.out = new DataOutputStream(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            block[size] = (byte) b;
+            size += 1;
+            if (size == BLOCK_SIZE) {
+                flushBlock();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int n = Math.min(len, BLOCK_SIZE - size);
+                System.arraycopy(b, off, block, size, n);
+                size += n;
+                off += n;
+                len -= n;
+                if (size == BLOCK_SIZE) {
+                    flushBlock();
+                }
+            }
+        }
+
+        /** Writes the buffered bytes as one block. */
+        private void flushBlock() throws IOException {
+            if (size == 0) {
+                return;
+            }
+            int n = compress(block, size, compressed, table);
+            out.writeInt(size);
+            if (n < size) {
+                out.writeInt(n);
+                out.write(compressed, 0, n);
+            } else {
+                out.writeInt(size);
+                out.write(block, 0, size);
+            }
+            size = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            flushBlock();
+            out.close();
+        }
+    }
+
+    /** Reads blocks written by LzOutputStream and yields their raw bytes. */
+    private static class LzInputStream extends InputStream {
+        private final DataInputStream in;
+        private final byte[] block = new byte[BLOCK_SIZE];
+        private final byte[] compressed = new byte[maxCompressedLength(BLOCK_SIZE)];
+        private int size;
+        private int pos;
+
+        LzInputStream(InputStream in) {
+            this.in = new DataInputStream(in);
+        }
+
+        /** Reads the next block, returning false at the end of the stream. */
+        private boolean fill() throws IOException {
+            int rawLen;
+            try {
+                rawLen = in.readInt();
+            } catch (EOFException excp) {
+                return false;
+            }
+            int storedLen = in.readInt();
+            if (rawLen <= 0 || rawLen > BLOCK_SIZE || storedLen <= 0 || storedLen > rawLen) {
+                throw new IOException("corrupt lz stream");
+            }
+            if (storedLen == rawLen) {
+                in.readFully(block, 0, rawLen);
+            } else {
+                in.readFully(compressed, 0, storedLen);
+                decompress(compressed, storedLen, block, rawLen);
+            }
+            size = rawLen;
+            pos = 0;
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (pos == size && !fill()) {
+                return -1;
+            }
+            int b = block[pos] & 0xff;
+            pos += 1;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (pos == size && !fill()) {
+                return -1;
+            }
+            int n = Math.min(len, size - pos);
+            System.arraycopy(block, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -9,18 +9,49 @@ public class Main {
      *  <COMMAND> <OPERAND1> <OPERAND2> ... 
      */
     public static void main(String[] args) {
-        if (args.length <= 1) {
-            exitWithError("Please enter a command.");
+        try {
+            if (args.length <= 1) {
+                exitWithError("Please enter a command.");
+            }
+            Repository.setupRepository(args[0]);
+            if (args[1].equals("serve")) {
+                Server.serve(args);
+                return;
+            }
+            run(args);
+        } catch (GitletException excp) {
+            if (excp.getMessage() != null && !excp.getMessage().equals("")) {
+                System.out.println(excp.getMessage());
+            }
+            System.exit(0);
         }
-        Repository.setupRepository(args[0]);
+    }
+
+    /** Runs the command given by ARGS against the repository set up for
+     *  ARGS[0], throwing a GitletException if it fails. */
+    static void run(String[] args) {
         String firstArg = args[1];
         /** if the command is not init and the repository is not initialized, exit with error. */
         if (!firstArg.equals("init") && !Repository.isInitialized()) {
             exitWithError("Not in an initialized Gitlet directory.");
         }
+        /** if the repository is in an older format, it must be migrated first. */
+        if (!firstArg.equals("init") && !firstArg.equals("migrate") && !Migration.isCurrent()) {
+            exitWithError("This repository uses an older format; run migrate first.");
+        }
+        try {
+            dispatch(firstArg, args);
+            Transaction.commit();
+        } finally {
+            Transaction.abort();
+        }
+    }
+
+    /** Runs the command FIRSTARG with the arguments ARGS. */
+    private static void dispatch(String firstArg, String[] args) {
         switch (firstArg) {
             case "init":
-                Repository.init();
+                Repository.init(args);
                 break;
             case "add":
                 Repository.add(args);
@@ -55,20 +86,42 @@ public class Main {
             case "reset":
                 Repository.reset(args);
                 break;
+            case "repack":
+                Repository.repack(args);
+                break;
+            case "stats":
+                Repository.stats(args);
+                break;
+            case "config":
+                Repository.config(args);
+                break;
+            case "migrate":
+                Repository.migrate(args);
+                break;
+            case "merge":
+                Repository.merge(args);
+                break;
+            case "diff":
+                Repository.diff(args);
+                break;
+            case "gc":
+                Repository.gc(args);
+                break;
+            case "fsck":
+                Repository.fsck(args);
+                break;
             default:
                 exitWithError("No command with that name exists.");
         }
     }
 
     /**
-     * Prints out MESSAGE and exits with error code 0.
+     * Abandons the current command with MESSAGE.  main prints MESSAGE and
+     * exits with error code 0; a server reports it and carries on.
      * @param message message to print
      */
     public static void exitWithError(String message) {
-        if (message != null && !message.equals("")) {
-            System.out.println(message);
-        }
-        System.exit(0);
+        throw new GitletException(message);
     }
 
 }
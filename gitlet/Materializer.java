@@ -0,0 +1,100 @@
+package gitlet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/** Writes blobs out to working files on a bounded pool of worker threads, so
+ *  that reading, decoding and writing of many files overlap.
+ *
+ *  The number of workers is checkout.threads, by default the number of
+ *  processors; 1 writes the files one after another.  Whatever the
+ *  interleaving, a failure is reported for the first failing path in path
+ *  order, after every other file has been attempted.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class Materializer {
+    /** Returns the configured number of worker threads. */
+    static int threads() {
+        int threads = Config.getInt("checkout.threads", Runtime.getRuntime().availableProcessors());
+        return Math.max(1, threads);
+    }
+
+    /** Writes the blob with id WRITES.get(P) to each working file P, and
+     *  records it in the working index.  Exits with an error naming the first
+     *  path, in order, that could not be written. */
+    static void write(SortedMap<String, String> writes) {
+        int threads = Math.min(threads(), writes.size());
+        if (threads <= 1) {
+            String failedPath = null;
+            Throwable failure = null;
+            for (Map.Entry<String, String> entry : writes.entrySet()) {
+                try {
+                    writeFile(entry.getKey(), entry.getValue());
+                } catch (RuntimeException excp) {
+                    if (failedPath == null) {
+                        failedPath = entry.getKey();
+                        failure = excp;
+                    }
+                }
+            }
+            if (failedPath != null) {
+                fail(failedPath, failure);
+            }
+            return;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "gitlet-materializer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<String> paths = new ArrayList<>();
+        List<Future<?>> results = new ArrayList<>();
+        for (Map.Entry<String, String> entry : writes.entrySet()) {
+            paths.add(entry.getKey());
+            results.add(pool.submit(() -> writeFile(entry.getKey(), entry.getValue())));
+        }
+        pool.shutdown();
+        String failedPath = null;
+        Throwable failure = null;
+        for (int i = 0; i < results.size(); i += 1) {
+            try {
+                results.get(i).get();
+            } catch (ExecutionException excp) {
+                if (failedPath == null) {
+                    failedPath = paths.get(i);
+                    failure = excp.getCause();
+                }
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+                fail(paths.get(i), excp);
+            }
+        }
+        if (failedPath != null) {
+            fail(failedPath, failure);
+        }
+    }
+
+    /** Writes the blob with the given BLOBID to the working file PATH. */
+    private static void writeFile(String path, String blobId) {
+        File file = Utils.join(Repository.CWD, path);
+        Blob blob = Blob.readBlob(blobId);
+        if (blob == null) {
+            throw Utils.error("missing blob %s", blobId);
+        }
+        blob.writeTo(file);
+        WorkingIndex.record(file, path, blobId);
+    }
+
+    /** Exits with an error saying PATH could not be written because of CAUSE. */
+    private static void fail(String path, Throwable cause) {
+        Main.exitWithError("Could not write " + path + ": " + cause.getMessage());
+    }
+}
@@ -0,0 +1,357 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/** A persistent index of commit messages, used by find.
+ *
+ *  The index maps each distinct message to the commits carrying it, each
+ *  lower-cased word to the messages containing it, and each three-character
+ *  substring to the messages containing it.  .gitlet/message-index holds a
+ *  snapshot of it.  Each new commit is appended to .gitlet/message-index.log
+ *  when the command that saved it commits, and the log is replayed on load
+ *  and folded into the snapshot once it holds COMPACT_THRESHOLD commits.  The snapshot is
+ *  replaced, and the log removed, when the command commits.
+ *
+ *  The snapshot holds a header, then each message with the raw ids of the
+ *  commits carrying it, then each word and each substring with the
+ *  positions of the messages containing it.  Strings are held as their
+ *  length and their UTF-8 bytes, as in the log.  When the index is
+ *  missing or does not cover every commit in the commit-graph, find falls
+ *  back to a parallel scan of the commits that also rebuilds it.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class MessageIndex {
+    /** "GLMI", the first four bytes of the snapshot. */
+    private static final int MAGIC = 0x474c4d49;
+    /** The version of the snapshot format. */
+    private static final int VERSION = 1;
+    /** The number of logged commits at which the log is folded into the snapshot. */
+    private static final int COMPACT_THRESHOLD = 256;
+    /** The length of the substrings indexed for substring queries. */
+    private static final int GRAM = 3;
+
+    /** The distinct messages. */
+    private final ArrayList<String> messages = new ArrayList<>();
+    /** The position in messages of each message. */
+    private final HashMap<String, Integer> numbers = new HashMap<>();
+    /** The ids of the commits carrying each message, by message position. */
+    private final ArrayList<TreeSet<String>> commits = new ArrayList<>();
+    /** The positions of the messages containing each lower-cased word. */
+    private final HashMap<String, TreeSet<Integer>> words = new HashMap<>();
+    /** The positions of the messages containing each GRAM-character substring. */
+    private final HashMap<String, TreeSet<Integer>> grams = new HashMap<>();
+    /** The ids of all indexed commits. */
+    private final HashSet<String> indexed = new HashSet<>();
+
+    /** Returns the file holding the snapshot. */
+    private static File snapshotFile() {
+        return Utils.join(Repository.GITLET_DIR, "message-index");
+    }
+
+    /** Returns the file holding the log of commits not yet in the snapshot. */
+    private static File logFile() {
+        return Utils.join(Repository.GITLET_DIR, "message-index.log");
+    }
+
+    /** Appends the commit with the given ID and MESSAGE to the log when the
+     *  current command commits. */
+    static void add(String id, String message) {
+        Transaction.append(() -> append(id, message));
+    }
+
+    /** Appends the commit with the given ID and MESSAGE to the log. */
+    private static void append(String id, String message) {
+        try (FileOutputStream file = new FileOutputStream(logFile(), true);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.write(Utils.toRawId(id));
+            writeString(out, message);
+            out.flush();
+            if (Transaction.fsync()) {
+                file.getChannel().force(false);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the index of the current repository, rebuilding it with a
+     *  parallel scan of the commits if it is missing or stale. */
+    static MessageIndex load() {
+        MessageIndex index = null;
+        int logged = 0;
+        if (snapshotFile().isFile()) {
+            index = read();
+        }
+        if (index != null) {
+            logged = index.replayLog();
+        }
+        if (index == null || index.indexed.size() != CommitGraph.size()) {
+            index = scan();
+            index.save();
+        } else if (logged >= COMPACT_THRESHOLD) {
+            index.save();
+        }
+        return index;
+    }
+
+    /** Writes the index afresh from every commit in the object store. */
+    static void rebuild() {
+        rebuild(ObjectStore.list(ObjectStore.Kind.COMMIT));
+    }
+
+    /** Writes the index afresh from the commits with the given IDS. */
+    static void rebuild(List<String> ids) {
+        scan(ids).save();
+    }
+
+    /** Adds the commits of the log to this index and returns how many
+     *  entries the log held. */
+    private int replayLog() {
+        if (!logFile().isFile()) {
+            return 0;
+        }
+        int entries = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(logFile().toPath())))) {
+            byte[] rawId = new byte[HashEngine.rawIdLength()];
+            while (true) {
+                try {
+                    in.readFully(rawId);
+                    put(Utils.toHexId(rawId, 0, rawId.length), readString(in));
+                    entries += 1;
+                } catch (EOFException excp) {
+                    return entries;
+                }
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns a new index of every commit in the object store, reading the
+     *  commits in parallel. */
+    private static MessageIndex scan() {
+        return scan(ObjectStore.list(ObjectStore.Kind.COMMIT));
+    }
+
+    /** Returns a new index of the commits with the given IDS, reading them
+     *  in parallel. */
+    private static MessageIndex scan(List<String> ids) {
+        List<String[]> entries = ids.parallelStream()
+                .map(id -> new String[] {id, Commit.readCommit(id).getMessage()})
+                .toList();
+        MessageIndex index = new MessageIndex();
+        for (String[] entry : entries) {
+            index.put(entry[0], entry[1]);
+        }
+        return index;
+    }
+
+    /** Returns the index held by the snapshot, or null if the snapshot is
+     *  not in the current format or is cut short. */
+    private static MessageIndex read() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(snapshotFile().toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            MessageIndex index = new MessageIndex();
+            int count = in.readInt();
+            byte[] rawId = new byte[HashEngine.rawIdLength()];
+            for (int number = 0; number < count; number += 1) {
+                String message = readString(in);
+                index.messages.add(message);
+                index.numbers.put(message, number);
+                TreeSet<String> ids = new TreeSet<>();
+                int carrying = in.readInt();
+                for (int i = 0; i < carrying; i += 1) {
+                    in.readFully(rawId);
+                    ids.add(Utils.toHexId(rawId, 0, rawId.length));
+                }
+                index.commits.add(ids);
+                index.indexed.addAll(ids);
+            }
+            readPostings(in, index.words);
+            readPostings(in, index.grams);
+            return index;
+        } catch (EOFException excp) {
+            return null;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Writes this index as the snapshot and removes the log when the
+     *  command commits. */
+    private void save() {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Transaction.open(snapshotFile())))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(messages.size());
+            for (int number = 0; number < messages.size(); number += 1) {
+                writeString(out, messages.get(number));
+                out.writeInt(commits.get(number).size());
+                for (String id : commits.get(number)) {
+                    out.write(Utils.toRawId(id));
+                }
+            }
+            writePostings(out, words);
+            writePostings(out, grams);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        Transaction.delete(logFile());
+    }
+
+    /** Writes the length of the UTF-8 encoding of TEXT and then the
+     *  encoding to OUT. */
+    private static void writeString(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /** Returns the string written by writeString next in IN. */
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Writes the number of keys of POSTINGS to OUT, then each key with the
+     *  number of its message positions and the positions. */
+    private static void writePostings(DataOutputStream out, Map<String, TreeSet<Integer>> postings)
+            throws IOException {
+        out.writeInt(postings.size());
+        for (Map.Entry<String, TreeSet<Integer>> entry : postings.entrySet()) {
+            writeString(out, entry.getKey());
+            out.writeInt(entry.getValue().size());
+            for (int number : entry.getValue()) {
+                out.writeInt(number);
+            }
+        }
+    }
+
+    /** Reads into POSTINGS the postings written by writePostings next in IN. */
+    private static void readPostings(DataInputStream in, Map<String, TreeSet<Integer>> postings)
+            throws IOException {
+        int keys = in.readInt();
+        for (int i = 0; i < keys; i += 1) {
+            String key = readString(in);
+            TreeSet<Integer> numbers = new TreeSet<>();
+            int count = in.readInt();
+            for (int k = 0; k < count; k += 1) {
+                numbers.add(in.readInt());
+            }
+            postings.put(key, numbers);
+        }
+    }
+
+    /** Indexes the commit with the given ID and MESSAGE. */
+    private void put(String id, String message) {
+        if (!indexed.add(id)) {
+            return;
+        }
+        Integer number = numbers.get(message);
+        if (number == null) {
+            number = messages.size();
+            messages.add(message);
+            numbers.put(message, number);
+            commits.add(new TreeSet<>());
+            for (String word : words(message)) {
+                words.computeIfAbsent(word, k -> new TreeSet<>()).add(number);
+            }
+            for (int i = 0; i + GRAM <= message.length(); i += 1) {
+                grams.computeIfAbsent(message.substring(i, i + GRAM),
+                        k -> new TreeSet<>()).add(number);
+            }
+        }
+        commits.get(number).add(id);
+    }
+
+    /** Returns the distinct lower-cased words of TEXT. */
+    private static Set<String> words(String text) {
+        Set<String> result = new HashSet<>();
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                result.add(word);
+            }
+        }
+        return result;
+    }
+
+    /** Returns a read-only view of the ids of the commits whose message is
+     *  exactly MESSAGE. */
+    SortedSet<String> exact(String message) {
+        Integer number = numbers.get(message);
+        return number == null ? Collections.emptySortedSet()
+                : Collections.unmodifiableSortedSet(commits.get(number));
+    }
+
+    /** Returns the ids of the commits whose message contains every word of
+     *  QUERY, ignoring case. */
+    TreeSet<String> tokens(String query) {
+        Collection<Integer> candidates = null;
+        for (String word : words(query)) {
+            TreeSet<Integer> postings = words.getOrDefault(word, new TreeSet<>());
+            candidates = candidates == null ? new TreeSet<>(postings) : intersect(candidates, postings);
+        }
+        return idsOf(candidates == null ? List.of() : candidates);
+    }
+
+    /** Returns the ids of the commits whose message contains TEXT. */
+    TreeSet<String> substring(String text) {
+        Collection<Integer> candidates = null;
+        for (int i = 0; i + GRAM <= text.length(); i += 1) {
+            TreeSet<Integer> postings = grams.getOrDefault(text.substring(i, i + GRAM), new TreeSet<>());
+            candidates = candidates == null ? new TreeSet<>(postings) : intersect(candidates, postings);
+        }
+        if (candidates == null) {
+            candidates = numbers.values();
+        }
+        List<Integer> matches = new ArrayList<>();
+        for (int number : candidates) {
+            if (messages.get(number).contains(text)) {
+                matches.add(number);
+            }
+        }
+        return idsOf(matches);
+    }
+
+    /** Returns the members of A that are also in B. */
+    private static Collection<Integer> intersect(Collection<Integer> a, Set<Integer> b) {
+        a.retainAll(b);
+        return a;
+    }
+
+    /** Returns the ids of the commits carrying the messages at NUMBERS. */
+    private TreeSet<String> idsOf(Collection<Integer> numbers) {
+        TreeSet<String> result = new TreeSet<>();
+        for (int number : numbers) {
+            result.addAll(commits.get(number));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,216 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** Converts a repository to the current storage format.
+ *
+ *  Repositories made before the binary encodings hold Java-serialized
+ *  commits, blobs and stage files.  Migration rewrites each blob as its raw
+ *  contents, each commit in the binary encoding with a tree, and the stage
+ *  in its binary encoding.  Since a commit's id is the hash of its
+ *  encoding, every commit gets a new id: parents, branches and HEAD are
+ *  remapped, and the commit-graph and the commit and message indexes are
+ *  rebuilt.  The Java-serialized objects are removed only once the refs,
+ *  the stage and the format have been replaced, so a migration cut short
+ *  leaves every ref naming an object that exists.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class Migration {
+    /** The storage format of the repositories this version writes. */
+    static final int FORMAT = 1;
+    /** The config key recording a repository's storage format. */
+    static final String FORMAT_KEY = "core.format";
+    /** The first byte of a Java-serialized object. */
+    private static final byte SERIALIZED = (byte) 0xac;
+
+    /** A blob as it was Java-serialized before blobs were stored raw. */
+    private static class LegacyBlob implements Serializable {
+        private static final long serialVersionUID = 3070054257220210104L;
+        /** The contents of the blob, read as UTF-8. */
+        private String text;
+        /** The id of the blob. */
+        private String ID;
+    }
+
+    /** An object stream that reads serialized gitlet.Blob objects as
+     *  LegacyBlobs, whose fields are the same. */
+    private static class LegacyBlobInputStream extends ObjectInputStream {
+        LegacyBlobInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+            ObjectStreamClass descriptor = super.readClassDescriptor();
+            if (descriptor.getName().equals(Blob.class.getName())) {
+                return ObjectStreamClass.lookup(LegacyBlob.class);
+            }
+            return descriptor;
+        }
+    }
+
+    /** Returns whether the current repository is in the current format. */
+    static boolean isCurrent() {
+        return Config.getInt(FORMAT_KEY, 0) >= FORMAT;
+    }
+
+    /** Marks the current repository as being in the current format. */
+    static void markCurrent() {
+        Config.set(FORMAT_KEY, String.valueOf(FORMAT));
+    }
+
+    /** Converts the current repository and prints what was converted. */
+    static void run() {
+        if (isCurrent()) {
+            System.out.println("Repository is already in the current format.");
+            return;
+        }
+        List<String> legacyBlobs = new ArrayList<>();
+        Map<String, String> blobIds = migrateBlobs(legacyBlobs);
+        Map<String, String> commitIds = migrateCommits(blobIds);
+        for (String branch : Utils.plainFilenamesIn(Repository.BRANCHES_DIR)) {
+            remapRef(Utils.join(Repository.BRANCHES_DIR, branch), commitIds);
+        }
+        String head = Utils.readContentsAsString(Utils.join(Repository.GITLET_DIR, "HEAD"));
+        Repository.moveHEAD(commitIds.getOrDefault(head, head));
+        StagingArea.readStage();
+        StagingArea.readStageForRemoval();
+        for (Map.Entry<String, String> entry : StagingArea.getStaged().entrySet()) {
+            entry.setValue(blobIds.getOrDefault(entry.getValue(), entry.getValue()));
+        }
+        StagingArea.saveStage();
+        StagingArea.saveStageForRemoval();
+        List<String> commits = new ArrayList<>(ObjectStore.list(ObjectStore.Kind.COMMIT));
+        commits.removeAll(commitIds.keySet());
+        CommitGraph.rebuild(commits);
+        CommitGraph.reset();
+        CommitIndex.rebuild(commits);
+        CommitIndex.reset();
+        MessageIndex.rebuild(commits);
+        WorkingIndex.clear();
+        markCurrent();
+        for (String id : legacyBlobs) {
+            ObjectStore.removeLooseOnCommit(ObjectStore.Kind.BLOB, id);
+        }
+        for (String id : commitIds.keySet()) {
+            ObjectStore.removeLooseOnCommit(ObjectStore.Kind.COMMIT, id);
+        }
+        System.out.println("Migrated " + commitIds.size() + " commits and "
+                + blobIds.size() + " blobs.");
+    }
+
+    /** Rewrites each Java-serialized blob as its raw contents, and returns
+     *  the new id of each, by old id.  A blob whose id is unchanged is
+     *  replaced in place when the command commits; the old ids of the others
+     *  are added to REPLACED, to be removed once nothing names them. */
+    private static Map<String, String> migrateBlobs(List<String> replaced) {
+        Map<String, String> result = new HashMap<>();
+        for (String id : ObjectStore.list(ObjectStore.Kind.BLOB)) {
+            if (ObjectStore.hasHeader(ObjectStore.Kind.BLOB, id)) {
+                continue;
+            }
+            byte[] data = ObjectStore.read(ObjectStore.Kind.BLOB, id);
+            LegacyBlob legacy;
+            try (ObjectInputStream in = new LegacyBlobInputStream(new ByteArrayInputStream(data))) {
+                legacy = (LegacyBlob) in.readObject();
+            } catch (IOException | ClassCastException | ClassNotFoundException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+            byte[] contents = legacy.text.getBytes(StandardCharsets.UTF_8);
+            String newId = HashEngine.hash(contents);
+            if (newId.equals(id)) {
+                ObjectStore.replaceOnCommit(ObjectStore.Kind.BLOB, id, contents);
+            } else {
+                ObjectStore.write(ObjectStore.Kind.BLOB, newId, contents);
+                replaced.add(id);
+            }
+            result.put(id, newId);
+        }
+        return result;
+    }
+
+    /** Rewrites each Java-serialized commit in the binary encoding, parents
+     *  first, with its blob ids remapped by BLOBIDS, and returns the new id
+     *  of each, by old id. */
+    private static Map<String, String> migrateCommits(Map<String, String> blobIds) {
+        Map<String, Commit> commits = new HashMap<>();
+        for (String id : ObjectStore.list(ObjectStore.Kind.COMMIT)) {
+            byte[] data = ObjectStore.read(ObjectStore.Kind.COMMIT, id);
+            if (data.length > 0 && data[0] == SERIALIZED) {
+                commits.put(id, Utils.deserialize(data, Commit.class));
+            }
+        }
+        Map<String, String> result = new HashMap<>();
+        Set<String> visited = new HashSet<>();
+        for (String id : commits.keySet()) {
+            Deque<String> stack = new ArrayDeque<>();
+            stack.push(id);
+            while (!stack.isEmpty()) {
+                String top = stack.peek();
+                if (visited.contains(top)) {
+                    stack.pop();
+                    continue;
+                }
+                boolean ready = true;
+                for (String parent : commits.get(top).getParentIds()) {
+                    if (commits.containsKey(parent) && !visited.contains(parent)) {
+                        stack.push(parent);
+                        ready = false;
+                    }
+                }
+                if (ready) {
+                    stack.pop();
+                    visited.add(top);
+                    result.put(top, migrateCommit(commits.get(top), result, blobIds));
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Writes LEGACY in the binary encoding, with its parent remapped by
+     *  COMMITIDS and its blobs by BLOBIDS, and returns the new id. */
+    private static String migrateCommit(Commit legacy, Map<String, String> commitIds,
+                                        Map<String, String> blobIds) {
+        String tree = legacy.getTree();
+        if (!blobIds.isEmpty()) {
+            HashMap<String, String> changes = new HashMap<>();
+            for (Map.Entry<String, String> file : Tree.flatten(tree).entrySet()) {
+                String blobId = blobIds.get(file.getValue());
+                if (blobId != null && !blobId.equals(file.getValue())) {
+                    changes.put(file.getKey(), blobId);
+                }
+            }
+            tree = Tree.update(tree, changes);
+        }
+        List<String> parents = new ArrayList<>();
+        for (String parent : legacy.getParentIds()) {
+            parents.add(commitIds.getOrDefault(parent, parent));
+        }
+        Commit commit = new Commit(legacy.getMessage(), legacy.getTimestamp(), parents, tree);
+        ObjectStore.write(ObjectStore.Kind.COMMIT, commit.getID(), commit.encode());
+        return commit.getID();
+    }
+
+    /** Rewrites the commit id held in the ref file REF by COMMITIDS. */
+    private static void remapRef(File ref, Map<String, String> commitIds) {
+        String id = Utils.readContentsAsString(ref);
+        Transaction.write(ref, commitIds.getOrDefault(id, id));
+    }
+}
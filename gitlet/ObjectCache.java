@@ -0,0 +1,99 @@
+package gitlet;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/** A cache of decoded objects by id, bounded by the estimated bytes they
+ *  occupy and evicting the least recently used first.  Objects are
+ *  immutable and named by the hash of their contents, so a cached object
+ *  never goes stale.  All methods are synchronized, so one cache may serve
+ *  every thread of a parallel command.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class ObjectCache<V> {
+    /** Every cache created, in order, for reporting. */
+    private static final List<ObjectCache<?>> ALL = new ArrayList<>();
+
+    /** The name of this cache, for reporting. */
+    private final String name;
+    /** The most bytes of objects this cache holds. */
+    private final long limit;
+    /** The cached objects and their sizes, least recently used first. */
+    private final LinkedHashMap<String, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    /** The total size of the cached objects. */
+    private long bytes;
+    /** The number of lookups that found, and did not find, their object. */
+    private long hits, misses;
+
+    /** A cached object and its estimated size in bytes. */
+    private static class Entry<V> {
+        final V value;
+        final long size;
+
+        Entry(V value, long size) {
+            this.value = value;
+            this.size = size;
+        }
+    }
+
+    /** A cache called NAME holding at most LIMIT bytes of objects. */
+    ObjectCache(String name, long limit) {
+        this.name = name;
+        this.limit = limit;
+        synchronized (ALL) {
+            ALL.add(this);
+        }
+    }
+
+    /** Returns every cache created so far. */
+    static List<ObjectCache<?>> all() {
+        synchronized (ALL) {
+            return new ArrayList<>(ALL);
+        }
+    }
+
+    /** Returns the object with the given ID, or null if it is not cached. */
+    synchronized V get(String id) {
+        Entry<V> entry = entries.get(id);
+        if (entry == null) {
+            misses += 1;
+            return null;
+        }
+        hits += 1;
+        return entry.value;
+    }
+
+    /** Caches VALUE, of estimated SIZE bytes, under ID, evicting the least
+     *  recently used objects beyond the limit.  Objects larger than the
+     *  whole limit are not cached. */
+    synchronized void put(String id, V value, long size) {
+        if (size > limit) {
+            return;
+        }
+        Entry<V> old = entries.put(id, new Entry<>(value, size));
+        if (old != null) {
+            bytes -= old.size;
+        }
+        bytes += size;
+        Iterator<Entry<V>> eldest = entries.values().iterator();
+        while (bytes > limit) {
+            bytes -= eldest.next().size;
+            eldest.remove();
+        }
+    }
+
+    /** Empties this cache, keeping its counters. */
+    synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /** Returns a line describing the use of this cache. */
+    synchronized String summary() {
+        return String.format("%s: %d hits, %d misses, %d objects in %d of %d bytes",
+                name, hits, misses, entries.size(), bytes, limit);
+    }
+}
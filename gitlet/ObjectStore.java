@@ -0,0 +1,720 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/** The object store behind Commit and Blob.
+ *
+ *  Loose objects are kept in two-hex-character fan-out subdirectories of
+ *  their kind's directory, so .gitlet/commits/ab/cdef... holds commit abcdef....
+ *  The repack command folds every object into a single packfile in
+ *  .gitlet/packs.  Lookups check the packs first and then the loose objects.
+ *
+ *  Every stored object starts with a header of the bytes "glo" and the id of
+ *  the Codec that encoded the rest of it, set by core.compression.  Objects
+ *  without a header were written before codecs existed and are kept as is.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class ObjectStore {
+    /** The kinds of objects in the store. */
+    enum Kind {
+        COMMIT('c'), BLOB('b'), TREE('t');
+
+        /** The byte recording this kind in a pack. */
+        private final byte code;
+
+        Kind(char code) {
+            this.code = (byte) code;
+        }
+
+        /** Returns the byte recording this kind in a pack. */
+        byte code() {
+            return code;
+        }
+
+        /** Returns the directory holding loose objects of this kind. */
+        File dir() {
+            switch (this) {
+                case COMMIT:
+                    return Repository.COMMITS_DIR;
+                case TREE:
+                    return Repository.TREES_DIR;
+                default:
+                    return Repository.BLOBS_DIR;
+            }
+        }
+
+        /** Returns the kind recorded by CODE. */
+        static Kind fromCode(byte code) {
+            for (Kind kind : values()) {
+                if (kind.code == code) {
+                    return kind;
+                }
+            }
+            throw Utils.error("Unknown object kind %d.", code);
+        }
+    }
+
+    /** The bytes starting the header of every stored object. */
+    private static final byte[] MAGIC = {'g', 'l', 'o'};
+    /** The length of the header of a stored object. */
+    static final int HEADER_LENGTH = MAGIC.length + 1;
+
+    /** The packs of the current repository, loaded on first use. */
+    private static List<Pack> packs;
+
+    /** The contents of recently used delta bases and reconstructed deltas,
+     *  so that a chain of deltas is not rebuilt from its start each time. */
+    private static final ObjectCache<byte[]> DELTA_CACHE = new ObjectCache<>("delta blobs", 16 << 20);
+    /** The default longest chain of deltas written by repack. */
+    private static final int DEFAULT_DEPTH = 10;
+    /** The number of preceding blobs of a path tried as delta bases. */
+    private static final int WINDOW = 10;
+    /** The largest blob repack considers for deltas. */
+    private static final long DELTA_SIZE_LIMIT = 16 << 20;
+
+    /** Forgets the loaded packs, so that they are reloaded on next use. */
+    static synchronized void reset() {
+        packs = null;
+    }
+
+    /** Returns the packs of the current repository. */
+    private static synchronized List<Pack> packs() {
+        if (packs == null) {
+            packs = new ArrayList<>();
+            List<String> names = Utils.plainFilenamesIn(Repository.PACKS_DIR);
+            if (names != null) {
+                for (String name : names) {
+                    File index = Utils.join(Repository.PACKS_DIR, name);
+                    if (name.endsWith(".idx") && !Transaction.removes(index)) {
+                        packs.add(new Pack(index));
+                    }
+                }
+            }
+        }
+        return packs;
+    }
+
+    /** Returns the file holding the loose object of KIND with the given ID. */
+    static File looseFile(Kind kind, String id) {
+        return Utils.join(kind.dir(), id.substring(0, 2), id.substring(2));
+    }
+
+    /** Returns the file holding the loose object of KIND with the given ID as
+     *  written before fan-out directories were introduced. */
+    private static File legacyFile(Kind kind, String id) {
+        return Utils.join(kind.dir(), id);
+    }
+
+    /** Returns the contents of the object of KIND with the given ID,
+     *  or null if there is no such object. */
+    static byte[] read(Kind kind, String id) {
+        try (InputStream in = open(kind, id)) {
+            return in == null ? null : in.readAllBytes();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns a stream over the contents of the object of KIND with the
+     *  given ID, or null if there is no such object. */
+    static InputStream open(Kind kind, String id) {
+        Pack pack = packOf(kind, id);
+        if (pack != null && pack.isDelta(pack.find(Utils.toRawId(id)))) {
+            return new ByteArrayInputStream(readDelta(pack, id));
+        }
+        InputStream in = openStored(kind, id);
+        return in == null ? null : decode(in);
+    }
+
+    /** Returns the pack holding the object of KIND with the given ID, or null
+     *  if it is not packed. */
+    private static Pack packOf(Kind kind, String id) {
+        if (id.length() != HashEngine.idLength()) {
+            return null;
+        }
+        byte[] rawId = Utils.toRawId(id);
+        for (Pack pack : packs()) {
+            int i = pack.find(rawId);
+            if (i >= 0 && pack.kindAt(i) == kind) {
+                return pack;
+            }
+        }
+        return null;
+    }
+
+    /** Returns whether the object of KIND with the given ID is stored as a
+     *  delta. */
+    static boolean isDelta(Kind kind, String id) {
+        Pack pack = packOf(kind, id);
+        return pack != null && pack.isDelta(pack.find(Utils.toRawId(id)));
+    }
+
+    /** Returns the contents of the blob with the given ID, stored in PACK as a
+     *  delta, applying it to its base.  Both are kept in DELTA_CACHE, since
+     *  a reconstructed blob is often the base of the next delta in a chain.
+     *  The contents returned must not be changed. */
+    private static byte[] readDelta(Pack pack, String id) {
+        byte[] result = DELTA_CACHE.get(id);
+        if (result != null) {
+            return result;
+        }
+        int i = pack.find(Utils.toRawId(id));
+        String baseId = pack.baseId(i);
+        byte[] base = DELTA_CACHE.get(baseId);
+        if (base == null) {
+            base = read(Kind.BLOB, baseId);
+            DELTA_CACHE.put(baseId, base, base.length);
+        }
+        try (InputStream in = decode(pack.open(i))) {
+            result = Delta.apply(base, in.readAllBytes());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        DELTA_CACHE.put(id, result, result.length);
+        return result;
+    }
+
+    /** Returns a stream over the stored bytes, header included, of the object
+     *  of KIND with the given ID, or null if there is no such object.  The
+     *  stored bytes of a delta are those of the delta itself. */
+    static InputStream openStored(Kind kind, String id) {
+        Pack pack = packOf(kind, id);
+        if (pack != null) {
+            return pack.open(pack.find(Utils.toRawId(id)));
+        }
+        if (id.length() != HashEngine.idLength()) {
+            return null;
+        }
+        File file = looseFile(kind, id);
+        if (!file.isFile()) {
+            file = legacyFile(kind, id);
+        }
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            return new BufferedInputStream(Files.newInputStream(file.toPath()));
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Copies the contents of the object of KIND with the given ID to TARGET
+     *  with FileChannel.transferTo, straight from its packfile or loose file,
+     *  so that they never enter the heap, and returns true.  Returns false,
+     *  copying nothing, if the object is compressed or stored as a delta. */
+    static boolean transferTo(Kind kind, String id, Path target) {
+        File source;
+        long offset, length;
+        Pack pack = packOf(kind, id);
+        if (pack != null) {
+            int i = pack.find(Utils.toRawId(id));
+            if (pack.isDelta(i)) {
+                return false;
+            }
+            source = pack.packFile();
+            offset = pack.offset(i);
+            length = pack.length(i);
+        } else {
+            source = looseFile(kind, id);
+            if (!source.isFile()) {
+                return false;
+            }
+            offset = 0;
+            length = source.length();
+        }
+        try (FileChannel in = FileChannel.open(source.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            if (in.read(header, offset) != HEADER_LENGTH
+                    || !Arrays.equals(header.array(), 0, MAGIC.length, MAGIC, 0, MAGIC.length)
+                    || header.get(MAGIC.length) != Codec.NONE.id()) {
+                return false;
+            }
+            try (FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                long position = offset + HEADER_LENGTH;
+                long remaining = length - HEADER_LENGTH;
+                while (remaining > 0) {
+                    long n = in.transferTo(position, remaining, out);
+                    if (n <= 0) {
+                        throw Utils.error("Object %s is truncated.", id);
+                    }
+                    position += n;
+                    remaining -= n;
+                }
+            }
+            return true;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns whether the store holds an object of KIND with the given ID. */
+    static boolean contains(Kind kind, String id) {
+        if (id.length() != HashEngine.idLength()) {
+            return false;
+        }
+        if (packOf(kind, id) != null) {
+            return true;
+        }
+        return looseFile(kind, id).isFile() || legacyFile(kind, id).isFile();
+    }
+
+    /** Returns whether the object of KIND with the given ID is stored with a
+     *  header, as every object written since codecs were introduced is. */
+    static boolean hasHeader(Kind kind, String id) {
+        try (InputStream in = new BufferedInputStream(openStored(kind, id), HEADER_LENGTH)) {
+            return readHeader(in) != null;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Removes the loose object of KIND with the given ID, in either layout,
+     *  when the current command commits, after the files written before. */
+    static void removeLooseOnCommit(Kind kind, String id) {
+        for (File file : new File[] {looseFile(kind, id), legacyFile(kind, id)}) {
+            if (file.isFile()) {
+                Transaction.delete(file);
+            }
+        }
+    }
+
+    /** Replaces the loose object of KIND with the given ID by DATA when the
+     *  current command commits, and then removes its copy in the layout from
+     *  before fan-out directories, so that the id names an object throughout. */
+    static void replaceOnCommit(Kind kind, String id, byte[] data) {
+        File file = looseFile(kind, id);
+        file.getParentFile().mkdirs();
+        try (OutputStream out = encode(new BufferedOutputStream(Transaction.open(file)))) {
+            out.write(data);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        if (legacyFile(kind, id).isFile()) {
+            Transaction.delete(legacyFile(kind, id));
+        }
+    }
+
+    /** Returns whether the store holds the object of KIND with the given ID,
+     *  and if it does, marks the file holding it as just written, so that gc
+     *  counts its grace period from now. */
+    static boolean freshen(Kind kind, String id) {
+        if (id.length() != HashEngine.idLength()) {
+            return false;
+        }
+        File file = looseFile(kind, id);
+        if (!file.isFile()) {
+            file = legacyFile(kind, id);
+        }
+        if (!file.isFile()) {
+            Pack pack = packOf(kind, id);
+            if (pack == null) {
+                return false;
+            }
+            file = pack.packFile();
+        }
+        file.setLastModified(System.currentTimeMillis());
+        return true;
+    }
+
+    /** Stores DATA as the loose object of KIND with the given ID, unless the
+     *  store already holds it, in which case it is freshened. */
+    static void write(Kind kind, String id, byte[] data) {
+        if (freshen(kind, id)) {
+            return;
+        }
+        File temp = tempFile(kind);
+        try (OutputStream out = encode(new BufferedOutputStream(Files.newOutputStream(temp.toPath())))) {
+            out.write(data);
+        } catch (IOException excp) {
+            temp.delete();
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        install(kind, id, temp);
+    }
+
+    /** Returns the codec new objects are written with. */
+    static Codec codec() {
+        Codec codec = Codec.forName(Config.get("core.compression", Codec.DEFLATE.name()));
+        return codec == null ? Codec.DEFLATE : codec;
+    }
+
+    /** Writes an object header onto OUT and returns a stream that encodes the
+     *  contents written to it onto OUT with the configured codec. */
+    static OutputStream encode(OutputStream out) throws IOException {
+        Codec codec = codec();
+        out.write(MAGIC);
+        out.write(codec.id());
+        return codec.encode(out);
+    }
+
+    /** Returns the codec of the object of KIND with the given ID, which
+     *  must exist.  Objects without a header are reported as Codec.NONE. */
+    static Codec storedCodec(Kind kind, String id) {
+        try (InputStream in = new BufferedInputStream(openStored(kind, id), HEADER_LENGTH)) {
+            Codec codec = readHeader(in);
+            return codec == null ? Codec.NONE : codec;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns a stream over the contents of the stored object read from IN. */
+    static InputStream decode(InputStream in) {
+        try {
+            if (!in.markSupported()) {
+                in = new BufferedInputStream(in);
+            }
+            Codec codec = readHeader(in);
+            return codec == null ? in : codec.decode(in);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Reads the header of the stored object read from IN, which must support
+     *  mark, and returns its codec.  Returns null, leaving IN unread, if the
+     *  object has no header. */
+    static Codec readHeader(InputStream in) throws IOException {
+        in.mark(HEADER_LENGTH);
+        byte[] header = in.readNBytes(HEADER_LENGTH);
+        if (header.length == HEADER_LENGTH
+                && Arrays.equals(header, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) {
+            return Codec.forId(header[MAGIC.length]);
+        }
+        in.reset();
+        return null;
+    }
+
+    /** Returns a new, empty temporary file in which an object of KIND may be
+     *  written before its id is known. */
+    static File tempFile(Kind kind) {
+        try {
+            kind.dir().mkdir();
+            return File.createTempFile("tmp_obj_", null, kind.dir());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Moves TEMP, written by the caller, into place as the loose object of
+     *  KIND with the given ID, or deletes it and freshens the object if the
+     *  store already holds it.  The object is durable once the current
+     *  command commits. */
+    static void install(Kind kind, String id, File temp) {
+        if (freshen(kind, id)) {
+            temp.delete();
+            return;
+        }
+        File file = looseFile(kind, id);
+        file.getParentFile().mkdirs();
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        Transaction.addObject(file);
+    }
+
+    /** Returns the ids of all objects of KIND, in lexicographic order. */
+    static List<String> list(Kind kind) {
+        List<String> result = new ArrayList<>();
+        for (Map.Entry<String, Kind> entry : all().entrySet()) {
+            if (entry.getValue() == kind) {
+                result.add(entry.getKey());
+            }
+        }
+        return result;
+    }
+
+    /** Returns the ids of all objects in the store, sorted, with their kinds. */
+    private static TreeMap<String, Kind> all() {
+        TreeMap<String, Kind> result = new TreeMap<>();
+        for (Pack pack : packs()) {
+            for (int i = 0; i < pack.size(); i += 1) {
+                result.put(pack.idAt(i), pack.kindAt(i));
+            }
+        }
+        for (Kind kind : Kind.values()) {
+            for (File file : looseFiles(kind)) {
+                String name = file.getName();
+                String id = name.length() == HashEngine.idLength() ? name
+                        : file.getParentFile().getName() + name;
+                result.put(id, kind);
+            }
+        }
+        return result;
+    }
+
+    /** Returns every loose object file of KIND, including legacy ones, but
+     *  not those the current command removes. */
+    private static List<File> looseFiles(Kind kind) {
+        List<File> result = new ArrayList<>();
+        File[] entries = kind.dir().listFiles();
+        if (entries == null) {
+            return result;
+        }
+        for (File entry : entries) {
+            if (entry.isFile() && entry.getName().length() == HashEngine.idLength()) {
+                if (!Transaction.removes(entry)) {
+                    result.add(entry);
+                }
+            } else if (entry.isDirectory() && entry.getName().length() == 2) {
+                for (String name : Utils.plainFilenamesIn(entry)) {
+                    File file = Utils.join(entry, name);
+                    if (!Transaction.removes(file)) {
+                        result.add(file);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Returns the deltas with which to store the blobs among OBJECTS.
+     *
+     *  Blobs are grouped by the file name a tree first gives them and
+     *  ordered by decreasing size within each group.  Each blob is tried
+     *  against the WINDOW blobs before it in its group whose size is within a
+     *  factor of two of its own and whose chains are shorter than pack.depth,
+     *  and is stored as the smallest delta found if that is at most half its
+     *  size. */
+    private static Map<String, Pack.DeltaEntry> chooseDeltas(TreeMap<String, Kind> objects) {
+        Map<String, Pack.DeltaEntry> result = new HashMap<>();
+        int maxDepth = Config.getInt("pack.depth", DEFAULT_DEPTH);
+        if (maxDepth <= 0) {
+            return result;
+        }
+        Map<String, String> paths = new HashMap<>();
+        for (Map.Entry<String, Kind> entry : objects.entrySet()) {
+            if (entry.getValue() == Kind.TREE) {
+                Tree tree = Tree.read(entry.getKey());
+                for (Map.Entry<String, String> file : tree.getFiles().entrySet()) {
+                    paths.putIfAbsent(file.getValue(), file.getKey());
+                }
+            }
+        }
+        Map<String, List<String>> groups = new TreeMap<>();
+        Map<String, Long> sizes = new HashMap<>();
+        for (Map.Entry<String, Kind> entry : objects.entrySet()) {
+            if (entry.getValue() != Kind.BLOB) {
+                continue;
+            }
+            String id = entry.getKey();
+            long size;
+            try (InputStream in = open(Kind.BLOB, id)) {
+                size = in.transferTo(OutputStream.nullOutputStream());
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+            if (size <= DELTA_SIZE_LIMIT) {
+                sizes.put(id, size);
+                groups.computeIfAbsent(paths.getOrDefault(id, ""), k -> new ArrayList<>()).add(id);
+            }
+        }
+        Map<String, Integer> depths = new HashMap<>();
+        for (List<String> group : groups.values()) {
+            group.sort((a, b) -> Long.compare(sizes.get(b), sizes.get(a)));
+            LinkedList<String> window = new LinkedList<>();
+            Map<String, byte[]> contents = new HashMap<>();
+            for (String id : group) {
+                byte[] target = read(Kind.BLOB, id);
+                Pack.DeltaEntry best = null;
+                for (String baseId : window) {
+                    byte[] base = contents.get(baseId);
+                    if (depths.getOrDefault(baseId, 0) >= maxDepth
+                            || base.length > 2L * target.length || target.length > 2L * base.length) {
+                        continue;
+                    }
+                    byte[] delta = Delta.compute(base, target);
+                    if (delta.length <= target.length / 2
+                            && (best == null || delta.length < best.delta.length)) {
+                        best = new Pack.DeltaEntry(baseId, delta);
+                    }
+                }
+                if (best != null) {
+                    result.put(id, best);
+                    depths.put(id, depths.getOrDefault(best.baseId, 0) + 1);
+                }
+                window.addFirst(id);
+                contents.put(id, target);
+                if (window.size() > WINDOW) {
+                    contents.remove(window.removeLast());
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Folds every loose object and every existing pack into a single new
+     *  pack, and removes the loose objects and the old packs when the
+     *  command commits, once the new pack is on disk.  Returns the number of
+     *  objects packed. */
+    static int repack() {
+        return repack(packs(), Set.of());
+    }
+
+    /** Folds the objects of OLDPACKS and every loose object into a new pack,
+     *  leaving out the objects with ids in SKIP, and removes OLDPACKS and the
+     *  loose objects packed when the command commits.  Loose objects in SKIP
+     *  are left as they are.  Returns the number of objects packed. */
+    private static int repack(List<Pack> oldPacks, Set<String> skip) {
+        Repository.PACKS_DIR.mkdir();
+        removeEmptyFanOut();
+        TreeMap<String, Kind> objects = new TreeMap<>();
+        for (Pack pack : oldPacks) {
+            for (int i = 0; i < pack.size(); i += 1) {
+                objects.put(pack.idAt(i), pack.kindAt(i));
+            }
+        }
+        Map<String, File> loose = new HashMap<>();
+        for (Kind kind : Kind.values()) {
+            for (File file : looseFiles(kind)) {
+                String id = looseId(file);
+                objects.put(id, kind);
+                loose.put(id, file);
+            }
+        }
+        objects.keySet().removeAll(skip);
+        File newPack = null;
+        if (!objects.isEmpty()) {
+            newPack = Pack.write(Repository.PACKS_DIR,
+                    new ArrayList<>(objects.keySet()), new ArrayList<>(objects.values()),
+                    chooseDeltas(objects)).packFile();
+        }
+        for (Pack pack : oldPacks) {
+            if (!pack.packFile().equals(newPack)) {
+                Transaction.delete(pack.indexFile());
+                Transaction.delete(pack.packFile());
+            }
+        }
+        for (String id : objects.keySet()) {
+            File file = loose.get(id);
+            if (file != null) {
+                Transaction.delete(file);
+            }
+        }
+        reset();
+        return objects.size();
+    }
+
+    /** Returns the id of the object held by the loose object file FILE. */
+    private static String looseId(File file) {
+        String name = file.getName();
+        return name.length() == HashEngine.idLength() ? name
+                : file.getParentFile().getName() + name;
+    }
+
+    /** Deletes the fan-out directories the loose objects removed by an
+     *  earlier command left empty. */
+    private static void removeEmptyFanOut() {
+        for (Kind kind : Kind.values()) {
+            File[] fanOut = kind.dir().listFiles(File::isDirectory);
+            if (fanOut != null) {
+                for (File dir : fanOut) {
+                    String[] entries = dir.list();
+                    if (entries != null && entries.length == 0) {
+                        dir.delete();
+                    }
+                }
+            }
+        }
+    }
+
+    /** Removes every object of each kind whose id is not in REACHABLE for
+     *  that kind, and that has been stored since before CUTOFF, in
+     *  milliseconds since the epoch, along with temporary files left before
+     *  CUTOFF.  Loose objects are removed when the command commits; packs
+     *  stored before CUTOFF that hold such objects are repacked without
+     *  them, and the new pack is on disk before anything is removed.
+     *  Unreachable objects stored since CUTOFF stay where they are, so that
+     *  their grace period is not restarted.  Returns the number of objects
+     *  of each kind removed. */
+    static Map<Kind, Integer> prune(Map<Kind, Set<String>> reachable, long cutoff) {
+        Map<Kind, Integer> result = new EnumMap<>(Kind.class);
+        Set<String> young = new HashSet<>();
+        for (Kind kind : Kind.values()) {
+            result.put(kind, 0);
+            for (File file : looseFiles(kind)) {
+                String id = looseId(file);
+                if (reachable.get(kind).contains(id)) {
+                    continue;
+                }
+                if (file.lastModified() < cutoff) {
+                    Transaction.delete(file);
+                    result.merge(kind, 1, Integer::sum);
+                } else {
+                    young.add(id);
+                }
+            }
+            File[] temps = kind.dir().listFiles((dir, name) -> name.startsWith("tmp_obj_"));
+            if (temps != null) {
+                for (File temp : temps) {
+                    if (temp.lastModified() < cutoff) {
+                        temp.delete();
+                    }
+                }
+            }
+        }
+        Set<String> drop = new HashSet<>();
+        List<Pack> oldPacks = new ArrayList<>();
+        for (Pack pack : packs()) {
+            if (pack.packFile().lastModified() >= cutoff) {
+                continue;
+            }
+            oldPacks.add(pack);
+            for (int i = 0; i < pack.size(); i += 1) {
+                Kind kind = pack.kindAt(i);
+                if (!reachable.get(kind).contains(pack.idAt(i))) {
+                    drop.add(pack.idAt(i));
+                    result.merge(kind, 1, Integer::sum);
+                }
+            }
+        }
+        if (!drop.isEmpty()) {
+            drop.addAll(young);
+            repack(oldPacks, drop);
+        }
+        reset();
+        return result;
+    }
+
+    /** Returns the bytes the loose objects and packs occupy on disk, leaving
+     *  out those the current command removes. */
+    static long diskUsage() {
+        long result = 0;
+        for (Kind kind : Kind.values()) {
+            for (File file : looseFiles(kind)) {
+                result += file.length();
+            }
+        }
+        for (Pack pack : packs()) {
+            result += pack.packFile().length() + pack.indexFile().length();
+        }
+        return result;
+    }
+}
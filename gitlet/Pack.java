@@ -0,0 +1,398 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+/** A packfile holding many stored objects, together with its sorted offset index.
+ *
+ *  pack-NAME.pack holds a header followed by every object as a kind byte and
+ *  its stored bytes.  pack-NAME.idx holds the raw ids of those objects in
+ *  sorted order, followed by their kinds, offsets into the pack and lengths,
+ *  so that an object is found with one binary search over the ids.  Both
+ *  files are mapped into memory, and objects are read straight from them.
+ *
+ *  A blob may instead be stored as a delta against another blob of the same
+ *  pack.  Its kind byte is DELTA and its stored bytes, an encoded Delta, are
+ *  preceded by the raw id of its base.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class Pack {
+    /** "GLPK", the first four bytes of every packfile. */
+    static final int PACK_MAGIC = 0x474c504b;
+    /** "GLIX", the first four bytes of every pack index. */
+    static final int INDEX_MAGIC = 0x474c4958;
+    /** The version of the pack and index formats written by this class.
+     *  Version 2 packs are read as well; they hold no deltas. */
+    static final int VERSION = 3;
+    /** The kind byte of a blob stored as a delta. */
+    static final byte DELTA = 'd';
+    /** The size of the buffer used to copy objects into and out of packs. */
+    private static final int BUFFER_SIZE = 1 << 16;
+    /** The size of the pieces in which a packfile is mapped. */
+    private static final long SEGMENT = 1L << 30;
+
+    /** The packfile holding the objects of this Pack. */
+    private final File packFile;
+    /** The number of objects in this Pack. */
+    private final int count;
+    /** The index, mapped into memory: a header, then the sorted raw ids,
+     *  the kinds, the offsets and the lengths of the objects. */
+    private final ByteBuffer index;
+    /** The positions in index of the ids, kinds, offsets and lengths. */
+    private final int idsStart, kindsStart, offsetsStart, lengthsStart;
+    /** The packfile mapped into memory, SEGMENT bytes per piece. */
+    private final MappedByteBuffer[] segments;
+
+    /** Loads the Pack whose index is INDEXFILE, mapping it and its packfile
+     *  into memory. */
+    Pack(File indexFile) {
+        String name = indexFile.getName();
+        packFile = Utils.join(indexFile.getParentFile(),
+                name.substring(0, name.length() - ".idx".length()) + ".pack");
+        index = map(indexFile)[0];
+        if (index.capacity() < 12 || index.getInt(0) != INDEX_MAGIC
+                || index.getInt(4) != VERSION && index.getInt(4) != 2) {
+            throw Utils.error("Corrupt pack index %s.", name);
+        }
+        count = index.getInt(8);
+        idsStart = 12;
+        kindsStart = idsStart + count * HashEngine.rawIdLength();
+        offsetsStart = kindsStart + count;
+        lengthsStart = offsetsStart + 8 * count;
+        if (index.capacity() < lengthsStart + 8L * count) {
+            throw Utils.error("Corrupt pack index %s.", name);
+        }
+        segments = map(packFile);
+    }
+
+    /** Maps FILE into memory read-only, in pieces of SEGMENT bytes. */
+    private static MappedByteBuffer[] map(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            MappedByteBuffer[] result = new MappedByteBuffer[(int) Math.max(1, (size + SEGMENT - 1) / SEGMENT)];
+            for (int s = 0; s < result.length; s += 1) {
+                long start = s * SEGMENT;
+                result[s] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(SEGMENT, size - start));
+            }
+            return result;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the position of the object with the given RAWID, or -1. */
+    int find(byte[] rawId) {
+        int lo = 0, hi = count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compareId(mid, rawId);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /** Compares the id at position I with RAWID as unsigned bytes. */
+    private int compareId(int i, byte[] rawId) {
+        int start = idsStart + i * HashEngine.rawIdLength();
+        for (int k = 0; k < HashEngine.rawIdLength(); k += 1) {
+            int cmp = Byte.compareUnsigned(index.get(start + k), rawId[k]);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
+    /** Returns the number of objects in this Pack. */
+    int size() {
+        return count;
+    }
+
+    /** Returns the hexadecimal id of the object at position I. */
+    String idAt(int i) {
+        byte[] rawId = new byte[HashEngine.rawIdLength()];
+        index.get(idsStart + i * HashEngine.rawIdLength(), rawId);
+        return Utils.toHexId(rawId, 0, rawId.length);
+    }
+
+    /** Returns the kind of the object at position I. */
+    ObjectStore.Kind kindAt(int i) {
+        if (isDelta(i)) {
+            return ObjectStore.Kind.BLOB;
+        }
+        return ObjectStore.Kind.fromCode(index.get(kindsStart + i));
+    }
+
+    /** Returns whether the object at position I is stored as a delta. */
+    boolean isDelta(int i) {
+        return index.get(kindsStart + i) == DELTA;
+    }
+
+    /** Returns the offset in the packfile of the stored bytes of the object
+     *  at position I. */
+    long offset(int i) {
+        return index.getLong(offsetsStart + 8 * i);
+    }
+
+    /** Returns the length of the stored bytes of the object at position I. */
+    long length(int i) {
+        return index.getLong(lengthsStart + 8 * i);
+    }
+
+    /** Returns the id of the base of the delta at position I. */
+    String baseId(int i) {
+        byte[] rawId = new byte[HashEngine.rawIdLength()];
+        region(offset(i) - HashEngine.rawIdLength(), HashEngine.rawIdLength()).get(rawId);
+        return Utils.toHexId(rawId, 0, rawId.length);
+    }
+
+    /** Returns the stored bytes of the object at position I. */
+    byte[] read(int i) {
+        byte[] result = new byte[Math.toIntExact(length(i))];
+        region(offset(i), result.length).get(result);
+        return result;
+    }
+
+    /** Returns a stream over the stored bytes of the object at position I,
+     *  served from the mapped packfile. */
+    InputStream open(int i) {
+        if (length(i) > Integer.MAX_VALUE) {
+            return new RegionInputStream(packFile, offset(i), length(i));
+        }
+        return new BufferInputStream(region(offset(i), (int) length(i)));
+    }
+
+    /** Returns a buffer over the LENGTH bytes of the packfile at OFFSET,
+     *  sliced from its mapped segment, or mapped afresh if they straddle two. */
+    private ByteBuffer region(long offset, int length) {
+        int s = (int) (offset / SEGMENT);
+        int start = (int) (offset - s * SEGMENT);
+        if (start + (long) length <= segments[s].capacity()) {
+            return segments[s].slice(start, length);
+        }
+        try (FileChannel channel = FileChannel.open(packFile.toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** An InputStream over the remaining bytes of a ByteBuffer. */
+    private static class BufferInputStream extends InputStream {
+        /** The buffer being read, positioned at the next byte. */
+        private final ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return len == 0 ? 0 : -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    /** An InputStream over the LIMIT bytes of a file at an offset, for
+     *  objects too large to map at once. */
+    private static class RegionInputStream extends InputStream {
+        /** The file being read, positioned at the next byte. */
+        private final RandomAccessFile in;
+        /** The number of bytes left in the region. */
+        private long remaining;
+
+        RegionInputStream(File file, long offset, long limit) {
+            try {
+                in = new RandomAccessFile(file, "r");
+                in.seek(offset);
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            remaining -= 1;
+            return in.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = in.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /** Returns the packfile of this Pack. */
+    File packFile() {
+        return packFile;
+    }
+
+    /** Returns the index file of this Pack. */
+    File indexFile() {
+        String name = packFile.getName();
+        return Utils.join(packFile.getParentFile(),
+                name.substring(0, name.length() - ".pack".length()) + ".idx");
+    }
+
+    /** A blob to be stored as DELTA against the blob BASEID. */
+    static class DeltaEntry {
+        /** The id of the base. */
+        final String baseId;
+        /** The delta turning the base into the blob. */
+        final byte[] delta;
+
+        DeltaEntry(String baseId, byte[] delta) {
+            this.baseId = baseId;
+            this.delta = delta;
+        }
+    }
+
+    /** Writes the objects named by the sorted list IDS, whose kinds are KINDS,
+     *  into a new pack in DIR, and returns it.  Objects that are keys of
+     *  DELTAS are stored as the corresponding deltas, whose bases must be
+     *  among IDS. */
+    static Pack write(File dir, List<String> ids, List<ObjectStore.Kind> kinds,
+                      Map<String, DeltaEntry> deltas) {
+        String name = "pack-" + HashEngine.hash(
+                String.join("", ids).getBytes(StandardCharsets.UTF_8));
+        File packFile = Utils.join(dir, name + ".pack");
+        File indexFile = Utils.join(dir, name + ".idx");
+        File tempPack = Utils.join(dir, name + ".pack.tmp");
+        File tempIndex = Utils.join(dir, name + ".idx.tmp");
+        long[] offsets = new long[ids.size()];
+        long[] lengths = new long[ids.size()];
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(tempPack.toPath())))) {
+            out.writeInt(PACK_MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(ids.size());
+            long position = 12;
+            for (int i = 0; i < ids.size(); i += 1) {
+                DeltaEntry entry = deltas.get(ids.get(i));
+                if (entry != null) {
+                    out.writeByte(DELTA);
+                    out.write(Utils.toRawId(entry.baseId));
+                    position += 1 + HashEngine.rawIdLength();
+                } else {
+                    out.writeByte(kinds.get(i).code());
+                    position += 1;
+                }
+                offsets[i] = position;
+                try (InputStream in = storedStream(kinds.get(i), ids.get(i), entry)) {
+                    for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                        out.write(buffer, 0, n);
+                        position += n;
+                    }
+                }
+                lengths[i] = position - offsets[i];
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(tempIndex.toPath())))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(ids.size());
+            for (String id : ids) {
+                out.write(Utils.toRawId(id));
+            }
+            for (int i = 0; i < ids.size(); i += 1) {
+                out.writeByte(deltas.containsKey(ids.get(i)) ? DELTA : kinds.get(i).code());
+            }
+            for (long offset : offsets) {
+                out.writeLong(offset);
+            }
+            for (long length : lengths) {
+                out.writeLong(length);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        try {
+            Files.move(tempPack.toPath(), packFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tempIndex.toPath(), indexFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+            Transaction.addObject(packFile);
+            Transaction.addObject(indexFile);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return new Pack(indexFile);
+    }
+
+    /** Returns a stream over the bytes to store in a pack for the object of
+     *  KIND with the given ID: ENTRY's delta if ENTRY is not null, and
+     *  otherwise the object as stored now, unless that is a delta. */
+    private static InputStream storedStream(ObjectStore.Kind kind, String id,
+                                            DeltaEntry entry) throws IOException {
+        if (entry == null && !ObjectStore.isDelta(kind, id)) {
+            return ObjectStore.openStored(kind, id);
+        }
+        ByteArrayOutputStream stored = new ByteArrayOutputStream();
+        try (OutputStream out = ObjectStore.encode(stored)) {
+            if (entry != null) {
+                out.write(entry.delta);
+            } else {
+                out.write(ObjectStore.read(kind, id));
+            }
+        }
+        return new ByteArrayInputStream(stored.toByteArray());
+    }
+}
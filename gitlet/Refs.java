@@ -0,0 +1,216 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** The branches of the repository and the commit each points at.
+ *
+ *  A branch is either loose, a file in .gitlet/branches holding its commit
+ *  id, or packed, an entry of the sorted table .gitlet/packed-refs, and a
+ *  loose branch overrides a packed one of the same name.  New and moved
+ *  branches are written loose, gc folds every loose branch into the table,
+ *  and a branch is looked up with one binary search over the table, which
+ *  is mapped once and kept until the table is rewritten or the server
+ *  finds another process has changed it.  Removing a packed branch
+ *  rewrites the table.
+ *
+ *  The table holds a header, the offset of each entry from the end of the
+ *  offsets, and the entries in name order, each the length of the branch's
+ *  UTF-8 name, the name and the raw commit id.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class Refs {
+    /** "GLPR", the first four bytes of the table. */
+    private static final int MAGIC = 0x474c5052;
+    /** The version of the table format. */
+    private static final int VERSION = 1;
+    /** The length of the header: magic, version and entry count. */
+    private static final int HEADER = 12;
+
+    /** The packed table, mapped on first use, or empty if there is none. */
+    private static ByteBuffer table;
+    /** The number of entries in the table. */
+    private static int count;
+
+    /** Forgets the mapped table, so that it is mapped again on next use. */
+    static void reset() {
+        table = null;
+        count = 0;
+    }
+
+    /** Returns the file holding the packed table. */
+    private static File tableFile() {
+        return Utils.join(Repository.GITLET_DIR, "packed-refs");
+    }
+
+    /** Returns the loose file of the branch NAME. */
+    private static File looseFile(String name) {
+        return Utils.join(Repository.BRANCHES_DIR, name);
+    }
+
+    /** Maps the packed table, unless it is mapped. */
+    private static void load() {
+        if (table != null) {
+            return;
+        }
+        if (!tableFile().isFile()) {
+            table = ByteBuffer.allocate(0);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(tableFile().toPath())) {
+            table = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        if (table.getInt(0) != MAGIC || table.getInt(4) != VERSION) {
+            throw Utils.error("Corrupt packed refs.");
+        }
+        count = table.getInt(8);
+    }
+
+    /** Returns the position in the table of entry I. */
+    private static int entry(int i) {
+        return HEADER + 4 * count + table.getInt(HEADER + 4 * i);
+    }
+
+    /** Returns the name of the entry at POS. */
+    private static String name(int pos) {
+        byte[] name = new byte[table.getShort(pos) & 0xffff];
+        table.get(pos + 2, name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    /** Returns the commit id of the entry at POS. */
+    private static String id(int pos) {
+        byte[] rawId = new byte[HashEngine.rawIdLength()];
+        table.get(pos + 2 + (table.getShort(pos) & 0xffff), rawId);
+        return Utils.toHexId(rawId, 0, rawId.length);
+    }
+
+    /** Returns the commit id of the packed branch NAME, or null if it is
+     *  not packed. */
+    private static String packed(String name) {
+        load();
+        int low = 0, high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int pos = entry(mid);
+            int cmp = name(pos).compareTo(name);
+            if (cmp == 0) {
+                return id(pos);
+            } else if (cmp < 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return null;
+    }
+
+    /** Returns the commit id the branch NAME points at, or null if there
+     *  is no such branch. */
+    static String read(String name) {
+        File loose = looseFile(name);
+        if (loose.isFile()) {
+            return Utils.readContentsAsString(loose);
+        }
+        return packed(name);
+    }
+
+    /** Returns whether the branch NAME exists. */
+    static boolean exists(String name) {
+        return looseFile(name).isFile() || packed(name) != null;
+    }
+
+    /** Points the branch NAME at the commit ID when the command commits. */
+    static void write(String name, String id) {
+        Transaction.write(looseFile(name), id);
+    }
+
+    /** Removes the branch NAME, which must exist, when the command commits. */
+    static void delete(String name) {
+        if (packed(name) != null) {
+            TreeMap<String, String> rest = packedRefs();
+            rest.remove(name);
+            writeTable(rest);
+        }
+        Transaction.delete(looseFile(name));
+    }
+
+    /** Returns the commit id of every branch, by name, in name order. */
+    static TreeMap<String, String> all() {
+        TreeMap<String, String> result = packedRefs();
+        List<String> loose = Utils.plainFilenamesIn(Repository.BRANCHES_DIR);
+        if (loose != null) {
+            for (String name : loose) {
+                result.put(name, Utils.readContentsAsString(looseFile(name)));
+            }
+        }
+        return result;
+    }
+
+    /** Folds every loose branch into the packed table when the command
+     *  commits, and returns the number folded. */
+    static int pack() {
+        List<String> loose = Utils.plainFilenamesIn(Repository.BRANCHES_DIR);
+        if (loose == null || loose.isEmpty()) {
+            return 0;
+        }
+        writeTable(all());
+        for (String name : loose) {
+            Transaction.delete(looseFile(name));
+        }
+        return loose.size();
+    }
+
+    /** Returns the commit id of every packed branch, by name. */
+    private static TreeMap<String, String> packedRefs() {
+        load();
+        TreeMap<String, String> result = new TreeMap<>();
+        for (int i = 0; i < count; i += 1) {
+            int pos = entry(i);
+            result.put(name(pos), id(pos));
+        }
+        return result;
+    }
+
+    /** Writes REFS as the packed table when the command commits. */
+    private static void writeTable(TreeMap<String, String> refs) {
+        ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        int[] offsets = new int[refs.size()];
+        int i = 0;
+        for (Map.Entry<String, String> ref : refs.entrySet()) {
+            offsets[i] = entries.size();
+            byte[] name = ref.getKey().getBytes(StandardCharsets.UTF_8);
+            entries.write(name.length >>> 8);
+            entries.write(name.length);
+            entries.writeBytes(name);
+            entries.writeBytes(Utils.toRawId(ref.getValue()));
+            i += 1;
+        }
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Transaction.open(tableFile())))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(offsets.length);
+            for (int offset : offsets) {
+                out.writeInt(offset);
+            }
+            entries.writeTo(out);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        // The mapped table is of the file being replaced; map the new one next time
+        Transaction.append(Refs::reset);
+    }
+}
@@ -1,11 +1,20 @@
 package gitlet;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 import static gitlet.Utils.*;
 
@@ -34,6 +43,10 @@ public class Repository {
     public static File BLOBS_DIR;
 
     public static File BRANCHES_DIR;
+
+    public static File TREES_DIR;
+
+    public static File PACKS_DIR;
     /* The sha1 of the HEAD */
     private static String HEAD;
     /* The current branch name */
@@ -45,7 +58,16 @@ public class Repository {
         STAGE_DIR = Utils.join(GITLET_DIR, "staged");
         COMMITS_DIR = Utils.join(GITLET_DIR, "commits");
         BLOBS_DIR = Utils.join(GITLET_DIR, "blobs");
+        TREES_DIR = Utils.join(GITLET_DIR, "trees");
         BRANCHES_DIR = Utils.join(GITLET_DIR, "branches");
+        PACKS_DIR = Utils.join(GITLET_DIR, "packs");
+        ObjectStore.reset();
+        Config.reset();
+        HashEngine.load();
+        CommitGraph.reset();
+        CommitIndex.reset();
+        WorkingIndex.reset();
+        StagingArea.reset();
         if (!isInitialized()) {
             return;
         }
@@ -58,18 +80,36 @@ public class Repository {
         saveCurrentBranch();
         saveBranch(currentBranch, HEAD);
     }
-    public static void init() {
+    /** Creates a repository whose object ids are computed with the given
+     * hash algorithm, sha1 unless given.
+     *
+     * java gitlet.Main init [--hash sha1|sha256] */
+    public static void init(String[] args) {
         /** if the CWD is initialized, exit with error */
         if (isInitialized()) {
             Main.exitWithError("A Gitlet version-control system already exists "
                     + "in the current directory.");
         }
+        HashEngine.Algorithm algorithm = HashEngine.Algorithm.SHA1;
+        if (args.length == 4 && args[2].equals("--hash")) {
+            algorithm = HashEngine.Algorithm.forName(args[3]);
+            if (algorithm == null) {
+                Main.exitWithError("No hash algorithm with that name exists.");
+            }
+        } else {
+            validateNumArgs(args, 2);
+        }
         /** set up directory */
         GITLET_DIR.mkdir();
         STAGE_DIR.mkdir();
         COMMITS_DIR.mkdir();
         BLOBS_DIR.mkdir();
+        TREES_DIR.mkdir();
         BRANCHES_DIR.mkdir();
+        PACKS_DIR.mkdir();
+        Config.set("core.hash", algorithm.configName());
+        HashEngine.select(algorithm);
+        Migration.markCurrent();
         /** set initial commit */
         Commit initialCommit = new Commit("initial commit");
         initialCommit.saveCommit();
@@ -84,7 +124,12 @@ public class Repository {
     /** Save the sha1 of HEAD commit to the HEAD file in .gitlet */
     private static void saveHEAD() {
         File saveFile = Utils.join(GITLET_DIR, "HEAD");
-        Utils.writeContents(saveFile, HEAD);
+        Transaction.write(saveFile, HEAD);
+    }
+    /** Points HEAD at the commit ID, without moving the current branch */
+    static void moveHEAD(String id) {
+        HEAD = id;
+        saveHEAD();
     }
     /** Reads the sha1 from the file HEAD*/
     private static String readHEAD() {
@@ -93,18 +138,16 @@ public class Repository {
     }
 
     private static void saveBranch(String branchName, String commitId) {
-        File newBranchFile = Utils.join(BRANCHES_DIR, branchName);
-        Utils.writeContents(newBranchFile, commitId);
+        Refs.write(branchName, commitId);
     }
 
     private static String readBranch(String branchName) {
-        File saveFile = Utils.join(BRANCHES_DIR, branchName);
-        return Utils.readContentsAsString(saveFile);
+        return Refs.read(branchName);
     }
 
     private static void saveCurrentBranch() {
         File saveFile = Utils.join(GITLET_DIR, "currentBranch");
-        Utils.writeContents(saveFile, currentBranch);
+        Transaction.write(saveFile, currentBranch);
     }
 
     private static String readCurrentBranch() {
@@ -112,23 +155,31 @@ public class Repository {
         return Utils.readContentsAsString(saveFile);
     }
 
+    /** Stages the named files, every file under the named directories and
+     * every file matching the given globs, reading HEAD and the stage once.
+     *
+     * java gitlet.Main add [file, directory or glob]... */
     public static void add(String[] args) {
-        validateNumArgs(args, 3);
-        File fileToStage = Utils.join(CWD, args[2]);
-        /** If the file does not exist, exit with error */
-        if (!fileToStage.exists()) {
-            Main.exitWithError("File does not exist.");
+        if (args.length < 3) {
+            Main.exitWithError("Incorrect operands.");
+        }
+        TreeSet<String> paths = new TreeSet<>();
+        for (int i = 2; i < args.length; i += 1) {
+            TreeSet<String> matches = WorkingTree.expand(args[i]);
+            /** If nothing matches, exit with error */
+            if (matches.isEmpty()) {
+                Main.exitWithError("File does not exist.");
+            }
+            paths.addAll(matches);
         }
-        // Adds a copy of the file as it currently exists to the staging area
+        // Adds a copy of each file as it currently exists to the staging area;
+        // the added files will no longer be staged for removal
         StagingArea.readStage();
-        StagingArea.addFileToStage(fileToStage);
-        StagingArea.saveStage();
-        // The added file will no longer be staged for removal
         StagingArea.readStageForRemoval();
-        if (StagingArea.contains(fileToStage, true)) {
-            StagingArea.removeFileFromStage(fileToStage, true);
-        }
+        StagingArea.addFilesToStage(paths, Commit.readCommit(HEAD).getMetadata());
+        StagingArea.saveStage();
         StagingArea.saveStageForRemoval();
+        WorkingIndex.save();
     }
 
     public static void commit(String[] args) {
@@ -138,20 +189,28 @@ public class Repository {
         }
         StagingArea.readStage();
         StagingArea.readStageForRemoval();
-        Commit newCommit = new Commit(args[2], HEAD);
-        Commit headCommit = Commit.readCommit(HEAD);
-        newCommit.metadataPutAll(headCommit.getMetadata());
         if (StagingArea.stageIsEmpty() && StagingArea.stageForRemovalIsEmpty()) {
             System.out.println("No changes added to the commit.");
-        } else {
-            newCommit.metadataPutAll(StagingArea.getStaged());
-            newCommit.metadataRemoveAll(StagingArea.getStagedForRemoval());
         }
+        commitStage(args[2], null);
+    }
+
+    /** Commits the stage with the given MESSAGE on top of HEAD, as a merge of
+     *  the commit MERGEPARENT if it is not null, and clears the stage */
+    private static void commitStage(String message, String mergeParent) {
+        Commit headCommit = Commit.readCommit(HEAD);
+        // Rewrites only the trees along the staged paths
+        HashMap<String, String> changes = new HashMap<>(StagingArea.getStaged());
+        for (String removed : StagingArea.getStagedForRemoval().keySet()) {
+            changes.put(removed, null);
+        }
+        Commit newCommit = new Commit(message, HEAD, mergeParent,
+                Tree.update(headCommit.getTree(), changes));
         HEAD = newCommit.getID();
         StagingArea.clearStage(false);
         StagingArea.clearStage(true);
-        saveRepository();
         newCommit.saveCommit();
+        saveRepository();
         StagingArea.saveStage();
         StagingArea.saveStageForRemoval();
     }
@@ -161,8 +220,10 @@ public class Repository {
         StagingArea.readStage();
         StagingArea.readStageForRemoval();
         File fileToRemove = Utils.join(CWD, args[2]);
+        String path = WorkingTree.path(fileToRemove);
+        boolean tracked = Commit.readCommit(HEAD).metadataContains(path);
         // failure case
-        if (!StagingArea.contains(fileToRemove, false) && !Commit.readCommit(HEAD).metadataContains(args[1])) {
+        if (!StagingArea.contains(fileToRemove, false) && !tracked) {
             Main.exitWithError("No reason to remove the file.");
         }
         // Unstage the file if it is currently staged for addition
@@ -171,26 +232,33 @@ public class Repository {
         }
         // If the file is tracked in the current commit, stage it for removal
         // and remove the file from the working directory if the user has not already done so
-        if (Commit.readCommit(HEAD).metadataContains(args[2])) {
+        if (tracked) {
             StagingArea.addFileToRemove(fileToRemove);
-            if (fileToRemove.exists()) {
-                fileToRemove.delete();
-            }
+            WorkingTree.delete(path);
+            WorkingIndex.forget(path);
         }
         StagingArea.saveStage();
         StagingArea.saveStageForRemoval();
+        WorkingIndex.save();
     }
 
+    /** Prints the history of HEAD from the commit-graph, reading no commits */
     public static void log() {
-        Commit currentCommit = Commit.readCommit(HEAD);
-        while (currentCommit != null) {
-            System.out.println(currentCommit);
-            currentCommit = currentCommit.getParentCommit();
+        int position = CommitGraph.position(HEAD);
+        if (position == CommitGraph.NO_PARENT) {
+            CommitGraph.rebuild();
+            CommitGraph.reset();
+            position = CommitGraph.position(HEAD);
+        }
+        while (position != CommitGraph.NO_PARENT) {
+            System.out.println(Commit.format(CommitGraph.id(position), CommitGraph.parentIds(position),
+                    new Date(CommitGraph.timestamp(position)), CommitGraph.message(position)));
+            position = CommitGraph.parent(position, 0);
         }
     }
 
     public static void globalLog() {
-        List<String> commitList = Utils.plainFilenamesIn(Repository.COMMITS_DIR);
+        List<String> commitList = ObjectStore.list(ObjectStore.Kind.COMMIT);
         Commit currentCommit;
         for (String commitFileName: commitList) {
             currentCommit = Commit.readCommit(commitFileName);
@@ -198,26 +266,40 @@ public class Repository {
         }
     }
 
+    /** Prints the ids of the commits with the given message, of the commits whose
+     * message contains all the given words, or of those whose message contains
+     * the given text.
+     *
+     * java gitlet.Main find [commit message]
+     * java gitlet.Main find --token [words]
+     * java gitlet.Main find --substring [text] */
     public static void find(String[] args) {
-        validateNumArgs(args, 3);
-        List<String> commitList = Utils.plainFilenamesIn(Repository.COMMITS_DIR);
-        Commit currentCommit;
-        boolean commitExists = false;
-        for (String commitFileName: commitList) {
-            currentCommit = Commit.readCommit(commitFileName);
-            if (currentCommit.getMessage().equals(args[2])) {
-                System.out.println(currentCommit.getID());
-                commitExists = true;
-            }
+        if (args.length != 3 && args.length != 4) {
+            Main.exitWithError("Incorrect operands.");
         }
-        if (!commitExists) {
+        MessageIndex index = MessageIndex.load();
+        Set<String> commitIds;
+        if (args.length == 3) {
+            commitIds = index.exact(args[2]);
+        } else if (args[2].equals("--token")) {
+            commitIds = index.tokens(args[3]);
+        } else if (args[2].equals("--substring")) {
+            commitIds = index.substring(args[3]);
+        } else {
+            Main.exitWithError("Incorrect operands.");
+            return;
+        }
+        for (String commitId : commitIds) {
+            System.out.println(commitId);
+        }
+        if (commitIds.isEmpty()) {
             System.out.println("Found no commit with that message.");
         }
     }
 
     public static void status() {
         // Branches
-        List<String> branchesList = Utils.plainFilenamesIn(Repository.BRANCHES_DIR);
+        Set<String> branchesList = Refs.all().keySet();
         System.out.println("=== Branches ===");
         for (String currentBranchName: branchesList) {
             if (currentBranch.equals(currentBranchName)) {
@@ -230,7 +312,7 @@ public class Repository {
         StagingArea.readStage();
         System.out.println("=== Staged Files ===");
         HashMap <String, String> stagedList = StagingArea.getStaged();
-        for (String stagedItem: stagedList.keySet()) {
+        for (String stagedItem: new TreeSet<>(stagedList.keySet())) {
             System.out.println(stagedItem);
         }
         System.out.println();
@@ -238,12 +320,53 @@ public class Repository {
         StagingArea.readStageForRemoval();
         System.out.println("=== Removed Files ===");
         HashMap <String, String> stagedForRemovalList = StagingArea.getStagedForRemoval();
-        for (String stagedItem: stagedForRemovalList.keySet()) {
+        for (String stagedItem: new TreeSet<>(stagedForRemovalList.keySet())) {
             System.out.println(stagedItem);
         }
         System.out.println();
-        System.out.println("=== Modifications Not Staged For Commit ===\n");
-        System.out.println("=== Untracked Files ===\n");
+        // Modifications Not Staged For Commit, hashing only files whose stat data changed
+        HashMap<String, String> tracked = Commit.readCommit(HEAD).getMetadata();
+        Set<String> workingFiles = WorkingTree.files();
+        TreeMap<String, String> modifications = new TreeMap<>();
+        for (String trackedItem: tracked.keySet()) {
+            if (!workingFiles.contains(trackedItem)) {
+                if (!stagedForRemovalList.containsKey(trackedItem)) {
+                    modifications.put(trackedItem, "deleted");
+                }
+            } else if (!stagedList.containsKey(trackedItem)
+                    && !workingFileId(trackedItem).equals(tracked.get(trackedItem))) {
+                modifications.put(trackedItem, "modified");
+            }
+        }
+        for (String stagedItem: stagedList.keySet()) {
+            if (!workingFiles.contains(stagedItem)) {
+                modifications.put(stagedItem, "deleted");
+            } else if (!workingFileId(stagedItem).equals(stagedList.get(stagedItem))) {
+                modifications.put(stagedItem, "modified");
+            }
+        }
+        System.out.println("=== Modifications Not Staged For Commit ===");
+        for (String modifiedItem: modifications.keySet()) {
+            System.out.println(modifiedItem + " (" + modifications.get(modifiedItem) + ")");
+        }
+        System.out.println();
+        // Untracked Files
+        System.out.println("=== Untracked Files ===");
+        for (String workingItem: workingFiles) {
+            if (!stagedList.containsKey(workingItem)
+                    && (!tracked.containsKey(workingItem)
+                        || stagedForRemovalList.containsKey(workingItem))) {
+                System.out.println(workingItem);
+            }
+        }
+        System.out.println();
+        WorkingIndex.save();
+    }
+
+    /** Returns the blob id of the working file with the given name,
+     *  from the working index when its stat data is unchanged */
+    private static String workingFileId(String filename) {
+        return WorkingIndex.hash(Utils.join(CWD, filename), filename);
     }
 
     public static void checkout(String[] args) {
@@ -258,14 +381,14 @@ public class Repository {
     /** Takes all files in the commit at the head of the given branch,
      * and puts them in the working directory,
      * overwriting the versions of the files that are already there if they exist.
+     * Only files that differ from the current commit's are written.
      *
      * java gitlet.Main checkout [branch name] */
     private static void checkoutBranch(String[] args) {
         if (currentBranch.equals(args[2])) {
             Main.exitWithError("No need to checkout the current branch.");
         }
-        File branchFile = Utils.join(BRANCHES_DIR, args[2]);
-        if (!branchFile.exists()) {
+        if (!Refs.exists(args[2])) {
             Main.exitWithError("No such branch exists.");
         }
         StagingArea.readStage();
@@ -274,31 +397,16 @@ public class Repository {
         String newBranchName = args[2];
         String newBranch = readBranch(newBranchName);
         Commit newBranchCommit = Commit.readCommit(newBranch);
-        for (String newBranchFile: newBranchCommit.getMetadata().keySet()) {
-            if (!currentCommit.metadataContains(newBranchFile)) {
-                File file = Utils.join(CWD, newBranchFile);
-                if (file.exists()) {
-                    Main.exitWithError("There is an untracked file in the way; delete it, or add and commit it first.");
-                }
-            }
-        }
-        for (String newBranchFile: newBranchCommit.getMetadata().keySet()) {
-            File file = Utils.join(CWD, newBranchFile);
-            String blobSha1 = newBranchCommit.getBlobSha1(file);
-            Blob blob = Blob.readBlob(blobSha1);
-            writeContents(file, blob.getText());
-        }
-        for (String currentCommitFile: currentCommit.getMetadata().keySet()) {
-            if (!newBranchCommit.metadataContains(currentCommitFile)) {
-                File file = Utils.join(CWD, currentCommitFile);
-                if (file.exists()) {
-                    file.delete();
-                }
-            }
+        CheckoutPlan plan = new CheckoutPlan(currentCommit, newBranchCommit);
+        if (plan.overwritesUntracked()) {
+            Main.exitWithError("There is an untracked file in the way; delete it, or add and commit it first.");
         }
+        plan.apply();
+        System.err.println(plan.summary());
         HEAD = newBranch;
         currentBranch = newBranchName;
         saveRepository();
+        WorkingIndex.save();
         StagingArea.clearStage(true);
         StagingArea.clearStage(false);
         StagingArea.saveStage();
@@ -329,22 +437,23 @@ public class Repository {
         }
         Commit commit = Commit.readCommitAb(commitID);
         File file = Utils.join(CWD, filename);
+        String path = WorkingTree.path(file);
         if (commit == null) {
             Main.exitWithError("No commit with that id exists.");
         }
-        if (!commit.metadataContains(filename)) {
+        if (!commit.metadataContains(path)) {
             Main.exitWithError("File does not exist in that commit.");
         }
         String blobSha1 = commit.getBlobSha1(file);
-        Blob blob = Blob.readBlob(blobSha1);
-        writeContents(file, blob.getText());
+        Blob.readBlob(blobSha1).writeTo(file);
+        WorkingIndex.record(file, path, blobSha1);
+        WorkingIndex.save();
     }
 
     public static void branch(String[] args) {
         validateNumArgs(args, 3);
         String newBranchName = args[2];
-        File branchFile = Utils.join(BRANCHES_DIR, newBranchName);
-        if (branchFile.exists()) {
+        if (Refs.exists(newBranchName)) {
             Main.exitWithError("A branch with that name already exists.");
         }
         saveBranch(newBranchName, HEAD);
@@ -353,14 +462,13 @@ public class Repository {
     public static void rmBranch(String[] args) {
         validateNumArgs(args, 3);
         String branchToRemove = args[2];
-        File branchFile = Utils.join(BRANCHES_DIR, branchToRemove);
         if (branchToRemove.equals(currentBranch)) {
             Main.exitWithError("Cannot remove the current branch.");
         }
-        if (!branchFile.exists()) {
+        if (!Refs.exists(branchToRemove)) {
             Main.exitWithError("A branch with that name does not exist.");
         }
-        branchFile.delete();
+        Refs.delete(branchToRemove);
     }
 
     public static void reset(String[] args) {
@@ -374,40 +482,284 @@ public class Repository {
             Main.exitWithError("No commit with that id exists.");
         }
         //Failure case 2: working file is untracked in the current branch and would be overwritten by the reset
-        for (String resetCommitFile: resetCommit.getMetadata().keySet()) {
-            if (!currentCommit.metadataContains(resetCommitFile)) {
-                File file = Utils.join(CWD, resetCommitFile);
-                if (file.exists()) {
-                    Main.exitWithError("There is an untracked file in the way; delete it, or add and commit it first.");
-                }
-            }
-        }
-        // Checks out all the files tracked by the given commit
-        for (String resetCommitFile: resetCommit.getMetadata().keySet()) {
-            File file = Utils.join(CWD, resetCommitFile);
-            String blobSha1 = resetCommit.getBlobSha1(file);
-            Blob blob = Blob.readBlob(blobSha1);
-            writeContents(file, blob.getText());
-        }
-
-        // Removes tracked files that are not present in that commit
-        for (String currentCommitFile: currentCommit.getMetadata().keySet()) {
-            if (!resetCommit.metadataContains(currentCommitFile)) {
-                File file = Utils.join(CWD, currentCommitFile);
-                if (file.exists()) {
-                    file.delete();
-                }
-            }
-        }
+        CheckoutPlan plan = new CheckoutPlan(currentCommit, resetCommit);
+        if (plan.overwritesUntracked()) {
+            Main.exitWithError("There is an untracked file in the way; delete it, or add and commit it first.");
+        }
+        // Checks out the files of the given commit that differ from the current ones,
+        // and removes tracked files that are not present in that commit
+        plan.apply();
+        System.err.println(plan.summary());
         // moves the current branch's head to that commit node
         HEAD = resetCommit.getID();
         saveRepository();
+        WorkingIndex.save();
         StagingArea.clearStage(true);
         StagingArea.clearStage(false);
         StagingArea.saveStage();
         StagingArea.saveStageForRemoval();
     }
 
+    /** Prints the differences between versions of the tracked files in the
+     * unified format: from the stage to the working files, from HEAD to the
+     * stage, from the given commit to the working files, or from the first
+     * given commit to the second.
+     *
+     * java gitlet.Main diff
+     * java gitlet.Main diff --staged
+     * java gitlet.Main diff [commit id]
+     * java gitlet.Main diff [commit id] [commit id] */
+    public static void diff(String[] args) {
+        if (args.length > 4) {
+            Main.exitWithError("Incorrect operands.");
+        }
+        StagingArea.readStage();
+        StagingArea.readStageForRemoval();
+        HashMap<String, String> headFiles = Commit.readCommit(HEAD).getMetadata();
+        HashMap<String, String> stagedFiles = new HashMap<>(headFiles);
+        stagedFiles.putAll(StagingArea.getStaged());
+        stagedFiles.keySet().removeAll(StagingArea.getStagedForRemoval().keySet());
+        HashMap<String, String> oldFiles, newFiles;
+        boolean working = true;
+        if (args.length == 2) {
+            oldFiles = stagedFiles;
+        } else if (args.length == 3 && args[2].equals("--staged")) {
+            oldFiles = headFiles;
+            working = false;
+        } else {
+            oldFiles = diffCommit(args[2]).getMetadata();
+            working = args.length == 3;
+        }
+        if (working) {
+            newFiles = new HashMap<>();
+            for (String path : stagedFiles.keySet()) {
+                if (Utils.join(CWD, path).isFile()) {
+                    newFiles.put(path, workingFileId(path));
+                }
+            }
+        } else {
+            newFiles = args.length == 4 ? diffCommit(args[3]).getMetadata() : stagedFiles;
+        }
+        TreeSet<String> paths = new TreeSet<>(oldFiles.keySet());
+        paths.addAll(newFiles.keySet());
+        DiffPrinter printer = new DiffPrinter(new BufferedOutputStream(System.out, 1 << 16));
+        for (String path : paths) {
+            String oldId = oldFiles.get(path);
+            String newId = newFiles.get(path);
+            if (Objects.equals(oldId, newId)) {
+                continue;
+            }
+            printer.print(path, oldId == null ? null : DiffPrinter.blob(oldId),
+                    newId == null ? null
+                            : working ? DiffPrinter.file(Utils.join(CWD, path)) : DiffPrinter.blob(newId));
+        }
+        WorkingIndex.save();
+    }
+
+    /** Returns the commit with the given abbreviated ID to diff, exiting with
+     * an error if there is none */
+    private static Commit diffCommit(String id) {
+        Commit commit = Commit.readCommitAb(id);
+        if (commit == null) {
+            Main.exitWithError("No commit with that id exists.");
+        }
+        return commit;
+    }
+
+    /** Merges the files of the given branch into the current branch, from
+     * their latest common ancestor, the split point.  A file changed on one
+     * side only takes that side's version; a file changed differently on both
+     * sides is merged line by line, with conflict markers around the regions
+     * both sides changed differently.  The result is committed with both
+     * heads as parents.
+     *
+     * java gitlet.Main merge [branch name] */
+    public static void merge(String[] args) {
+        validateNumArgs(args, 3);
+        StagingArea.readStage();
+        StagingArea.readStageForRemoval();
+        if (!StagingArea.stageIsEmpty() || !StagingArea.stageForRemovalIsEmpty()) {
+            Main.exitWithError("You have uncommitted changes.");
+        }
+        String branchName = args[2];
+        if (!Refs.exists(branchName)) {
+            Main.exitWithError("A branch with that name does not exist.");
+        }
+        if (branchName.equals(currentBranch)) {
+            Main.exitWithError("Cannot merge a branch with itself.");
+        }
+        String given = readBranch(branchName);
+        String split = CommitGraph.mergeBase(HEAD, given);
+        if (given.equals(split)) {
+            System.out.println("Given branch is an ancestor of the current branch.");
+            return;
+        }
+        Commit currentCommit = Commit.readCommit(HEAD);
+        Commit givenCommit = Commit.readCommit(given);
+        if (HEAD.equals(split)) {
+            CheckoutPlan plan = new CheckoutPlan(currentCommit, givenCommit);
+            if (plan.overwritesUntracked()) {
+                Main.exitWithError("There is an untracked file in the way; delete it, or add and commit it first.");
+            }
+            plan.apply();
+            HEAD = given;
+            saveRepository();
+            WorkingIndex.save();
+            System.out.println("Current branch fast-forwarded.");
+            return;
+        }
+        HashMap<String, String> splitFiles = split == null
+                ? new HashMap<>() : Commit.readCommit(split).getMetadata();
+        HashMap<String, String> currentFiles = currentCommit.getMetadata();
+        HashMap<String, String> givenFiles = givenCommit.getMetadata();
+        TreeSet<String> paths = new TreeSet<>(splitFiles.keySet());
+        paths.addAll(currentFiles.keySet());
+        paths.addAll(givenFiles.keySet());
+        TreeMap<String, String> writes = new TreeMap<>();
+        List<String> deletes = new ArrayList<>();
+        List<String> merges = new ArrayList<>();
+        for (String path : paths) {
+            String base = splitFiles.get(path);
+            String ours = currentFiles.get(path);
+            String theirs = givenFiles.get(path);
+            if (Objects.equals(ours, theirs) || Objects.equals(base, theirs)) {
+                continue;
+            }
+            if (!Objects.equals(base, ours)) {
+                merges.add(path);
+            } else if (theirs == null) {
+                deletes.add(path);
+            } else {
+                writes.put(path, theirs);
+            }
+        }
+        // Files the current commit does not track must not be overwritten
+        for (String path : paths) {
+            if (!currentFiles.containsKey(path)
+                    && (writes.containsKey(path) || merges.contains(path))
+                    && CheckoutPlan.untrackedInTheWay(path, currentFiles)) {
+                Main.exitWithError("There is an untracked file in the way; delete it, or add and commit it first.");
+            }
+        }
+        // Deletes come first, so that a file may replace a directory and the reverse
+        for (String path : deletes) {
+            WorkingTree.delete(path);
+            WorkingIndex.forget(path);
+            StagingArea.addFileToRemove(Utils.join(CWD, path));
+        }
+        Materializer.write(writes);
+        StagingArea.getStaged().putAll(writes);
+        int conflicts = 0;
+        for (String path : merges) {
+            File file = Utils.join(CWD, path);
+            conflicts += mergeFile(file, splitFiles.get(path), currentFiles.get(path), givenFiles.get(path));
+            String blobId = new Blob(file).getID();
+            WorkingIndex.record(file, path, blobId);
+            StagingArea.getStaged().put(path, blobId);
+        }
+        commitStage("Merged " + branchName + " into " + currentBranch + ".", given);
+        WorkingIndex.save();
+        if (conflicts > 0) {
+            System.out.println("Encountered a merge conflict.");
+        }
+    }
+
+    /** Writes to FILE the merge of the blobs OURS and THEIRS from the blob
+     * BASE, any of which is null if that version is absent, and returns the
+     * number of conflicts written */
+    private static int mergeFile(File file, String base, String ours, String theirs) {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory()) {
+            parent.mkdirs();
+        }
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file.toPath()))) {
+            return ThreeWayMerge.merge(base == null ? null : DiffPrinter.blob(base),
+                    ours == null ? null : DiffPrinter.blob(ours),
+                    theirs == null ? null : DiffPrinter.blob(theirs), out);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Folds all loose objects into a single packfile.
+     *
+     * java gitlet.Main repack */
+    public static void repack(String[] args) {
+        validateNumArgs(args, 2);
+        int count = ObjectStore.repack();
+        System.out.println("Packed " + count + " objects.");
+    }
+
+    /** Removes the objects that no branch, HEAD or the stage reaches and that
+     * are older than the grace period, in seconds.
+     *
+     * java gitlet.Main gc
+     * java gitlet.Main gc --grace [seconds] */
+    public static void gc(String[] args) {
+        long grace = -1;
+        if (args.length == 4 && args[2].equals("--grace")) {
+            try {
+                grace = Long.parseLong(args[3]);
+            } catch (NumberFormatException excp) {
+                grace = -1;
+            }
+            if (grace < 0) {
+                Main.exitWithError("Incorrect operands.");
+            }
+        } else {
+            validateNumArgs(args, 2);
+        }
+        GarbageCollector.run(grace);
+    }
+
+    /** Verifies the hash of every object and that every object named by a
+     * branch, HEAD, the stage or another object exists, and prints the
+     * corrupt, missing and dangling objects.
+     *
+     * java gitlet.Main fsck */
+    public static void fsck(String[] args) {
+        validateNumArgs(args, 2);
+        Fsck.run();
+    }
+
+    /** Prints how the objects are stored and how each codec performs on them.
+     *
+     * java gitlet.Main stats */
+    public static void stats(String[] args) {
+        validateNumArgs(args, 2);
+        Stats.print();
+    }
+
+    /** Prints the value of a setting, or sets it.
+     *
+     * java gitlet.Main config [key]
+     * java gitlet.Main config [key] [value] */
+    public static void config(String[] args) {
+        if (args.length == 3) {
+            String value = Config.get(args[2], null);
+            if (value != null) {
+                System.out.println(value);
+            }
+            return;
+        }
+        validateNumArgs(args, 4);
+        if (args[2].equals("core.compression") && Codec.forName(args[3]) == null) {
+            Main.exitWithError("No codec with that name exists.");
+        }
+        if (args[2].equals("core.hash")) {
+            Main.exitWithError("The hash algorithm is chosen at init and cannot be changed.");
+        }
+        Config.set(args[2], args[3]);
+    }
+
+    /** Converts a repository made by an older version to the current format.
+     *
+     * java gitlet.Main migrate */
+    public static void migrate(String[] args) {
+        validateNumArgs(args, 2);
+        Migration.run();
+    }
+
     /**
      * Checks the number of arguments versus the expected number,
      * throws a RuntimeException if they do not match.
@@ -420,10 +772,4 @@ public class Repository {
             Main.exitWithError("Incorrect operands.");
         }
     }
-
-    public static boolean fileIsCurrentVersion(File file, String blobSha1) {
-        Commit commit = Commit.readCommit(HEAD);
-        String recentSha1 = commit.getBlobSha1(file);
-        return recentSha1 != null && recentSha1.equals(blobSha1);
-    }
 }
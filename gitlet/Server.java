@@ -0,0 +1,281 @@
+package gitlet;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+/** A long-running gitlet that keeps one repository open and runs commands
+ *  sent to it, so that they pay neither JVM startup nor cold caches.
+ *
+ *  Each request is one line holding a command and its operands as they
+ *  would follow the working directory on the command line, separated by
+ *  spaces; an operand holding spaces is put in double quotes, within which
+ *  a backslash escapes the next character.  Each response is a line
+ *  "ok LENGTH" or "error LENGTH", followed by the LENGTH bytes of UTF-8 the
+ *  command printed.  The request "shutdown" stops the server.
+ *
+ *  Commands run one at a time, whichever connection sent them.  Between
+ *  commands the server keeps HEAD, the current branch, the stage, recently
+ *  read commits and the indexes in memory.  It drops them, as a fresh
+ *  process would, after a failed command or when another process has
+ *  changed the repository's refs, stage, settings or indexes.
+ *
+ *  java gitlet.Main [dir] serve
+ *  java gitlet.Main [dir] serve --socket [path]
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class Server {
+    /** The request that stops the server. */
+    private static final String SHUTDOWN = "shutdown";
+    /** The files whose change by another process invalidates what the
+     *  server keeps in memory, relative to .gitlet. */
+    private static final String[] WATCHED = {"HEAD", "currentBranch", "config", "index",
+        "branches", "packed-refs", "commit-graph", "commit-ids", "commit-ids.log",
+        "message-index", "message-index.log", "packs", "staged/staged", "staged/stagedForRemoval"};
+
+    /** The small files whose contents, not only their identity, size and
+     *  modification time, go into the stamp, relative to .gitlet. */
+    private static final String[] READ = {"HEAD", "currentBranch"};
+
+    /** The working directory of the repository served. */
+    private static String cwd;
+    /** The state of the WATCHED files when the last command finished. */
+    private static String stamp;
+    /** Held while a command runs. */
+    private static final Object LOCK = new Object();
+
+    /** Serves the repository in ARGS[0], reading requests from the standard
+     *  input, or from the Unix-domain socket at ARGS[3] if ARGS[2] is
+     *  --socket. */
+    static void serve(String[] args) {
+        cwd = args[0];
+        stamp = stamp();
+        if (args.length == 2) {
+            serveStream(System.in, System.out);
+        } else if (args.length == 4 && args[2].equals("--socket")) {
+            serveSocket(Path.of(args[3]));
+        } else {
+            Main.exitWithError("Incorrect operands.");
+        }
+    }
+
+    /** Accepts connections on a Unix-domain socket at PATH, serving each on
+     *  its own thread, until one of them requests shutdown. */
+    private static void serveSocket(Path path) {
+        ServerSocketChannel server;
+        try {
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        try {
+            Files.deleteIfExists(path);
+            server.bind(UnixDomainSocketAddress.of(path));
+            while (true) {
+                SocketChannel client = server.accept();
+                Thread thread = new Thread(() -> serveClient(server, client),
+                        "gitlet-server-client");
+                thread.setDaemon(true);
+                thread.start();
+            }
+        } catch (ClosedChannelException excp) {
+            return;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            stop(server);
+            path.toFile().delete();
+        }
+    }
+
+    /** Serves the connection CLIENT, and stops SERVER if CLIENT requests
+     *  shutdown. */
+    private static void serveClient(ServerSocketChannel server, SocketChannel client) {
+        try (client) {
+            if (serveStream(Channels.newInputStream(client), Channels.newOutputStream(client))) {
+                stop(server);
+            }
+        } catch (IOException excp) {
+            return;
+        }
+    }
+
+    /** Closes SERVER, so that it accepts no more connections. */
+    private static void stop(ServerSocketChannel server) {
+        try {
+            server.close();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Answers the requests read from IN on OUT until IN ends or shutdown is
+     *  requested, and returns whether it was. */
+    private static boolean serveStream(InputStream in, OutputStream out) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        try {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                List<String> words = split(line);
+                if (words.isEmpty()) {
+                    continue;
+                }
+                if (words.size() == 1 && words.get(0).equals(SHUTDOWN)) {
+                    respond(out, true, new byte[0]);
+                    return true;
+                }
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                boolean ok = execute(words, output);
+                respond(out, ok, output.toByteArray());
+            }
+            return false;
+        } catch (IOException excp) {
+            return false;
+        }
+    }
+
+    /** Writes the response to a request on OUT: whether it succeeded, OK, and
+     *  the OUTPUT of its command. */
+    private static void respond(OutputStream out, boolean ok, byte[] output) throws IOException {
+        String header = (ok ? "ok " : "error ") + output.length + "\n";
+        out.write(header.getBytes(StandardCharsets.UTF_8));
+        out.write(output);
+        out.flush();
+    }
+
+    /** Runs the command WORDS, printing to OUTPUT, and returns whether it
+     *  succeeded. */
+    private static boolean execute(List<String> words, ByteArrayOutputStream output) {
+        synchronized (LOCK) {
+            if (!stamp().equals(stamp)) {
+                reset();
+            }
+            PrintStream standardOut = System.out;
+            PrintStream capture = new PrintStream(output, true, StandardCharsets.UTF_8);
+            System.setOut(capture);
+            try {
+                if (words.get(0).equals("serve")) {
+                    Main.exitWithError("Already serving.");
+                }
+                String[] args = new String[words.size() + 1];
+                args[0] = cwd;
+                for (int i = 0; i < words.size(); i += 1) {
+                    args[i + 1] = words.get(i);
+                }
+                Main.run(args);
+                return true;
+            } catch (RuntimeException excp) {
+                if (excp.getMessage() != null && !excp.getMessage().equals("")) {
+                    capture.println(excp.getMessage());
+                } else if (!(excp instanceof GitletException)) {
+                    capture.println(excp);
+                }
+                reset();
+                return false;
+            } finally {
+                capture.flush();
+                System.setOut(standardOut);
+                stamp = stamp();
+            }
+        }
+    }
+
+    /** Drops what the server keeps in memory: the files of an unfinished
+     *  command, the packed refs, and the state and caches of the repository.
+     *  Main.run leaves them in place, so that the next command reuses them. */
+    private static void reset() {
+        Transaction.abort();
+        Refs.reset();
+        Repository.setupRepository(cwd);
+    }
+
+    /** Returns a summary of the file key, size and modification time of each
+     *  of the WATCHED files, which changes when one is replaced, followed by
+     *  the contents of the READ files and of each loose branch, which another
+     *  process may rewrite in place within one tick of the clock. */
+    private static String stamp() {
+        StringBuilder result = new StringBuilder();
+        for (String name : WATCHED) {
+            Path path = Utils.join(Repository.GITLET_DIR, name).toPath();
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+                result.append(attrs.fileKey()).append(':').append(attrs.size()).append(':')
+                        .append(attrs.lastModifiedTime()).append(' ');
+            } catch (IOException excp) {
+                result.append("- ");
+            }
+        }
+        for (String name : READ) {
+            appendContents(result, name, Utils.join(Repository.GITLET_DIR, name));
+        }
+        List<String> branches = Utils.plainFilenamesIn(Repository.BRANCHES_DIR);
+        if (branches != null) {
+            for (String name : branches) {
+                appendContents(result, name, Utils.join(Repository.BRANCHES_DIR, name));
+            }
+        }
+        return result.toString();
+    }
+
+    /** Appends NAME and the contents of FILE, or "-" if it is missing, to
+     *  STAMP. */
+    private static void appendContents(StringBuilder stamp, String name, File file) {
+        stamp.append(name).append('=');
+        if (file.isFile()) {
+            stamp.append(Utils.readContentsAsString(file));
+        } else {
+            stamp.append('-');
+        }
+        stamp.append(' ');
+    }
+
+    /** Returns the words of LINE, split at spaces outside double quotes. */
+    static List<String> split(String line) {
+        List<String> result = new ArrayList<>();
+        StringBuilder word = null;
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i += 1) {
+            char c = line.charAt(i);
+            if (quoted && c == '\\' && i + 1 < line.length()) {
+                i += 1;
+                word.append(line.charAt(i));
+            } else if (c == '"') {
+                quoted = !quoted;
+                if (word == null) {
+                    word = new StringBuilder();
+                }
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (word != null) {
+                    result.add(word.toString());
+                    word = null;
+                }
+            } else {
+                if (word == null) {
+                    word = new StringBuilder();
+                }
+                word.append(c);
+            }
+        }
+        if (word != null) {
+            result.add(word.toString());
+        }
+        return result;
+    }
+}
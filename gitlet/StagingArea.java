@@ -1,29 +1,78 @@
 package gitlet;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
 
+/** The files staged for addition, with their blob ids, and the files staged
+ *  for removal.  Each map is kept in STAGE_DIR in a binary encoding: MAGIC,
+ *  the number of entries, and each path followed, for additions, by the raw
+ *  blob id.  Java-serialized maps from before that encoding are still read,
+ *  so that migrate can convert them. */
 public class StagingArea {
-    //
+    /** "GLST", the first four bytes of a stage file. */
+    private static final int MAGIC = 0x474c5354;
+    /** The first two bytes of a Java-serialized stage file. */
+    private static final int SERIALIZED_MAGIC = 0xaced;
+
     private static HashMap<String, String> staged = new HashMap<>();
     private static HashMap<String, String> stagedForRemoval = new HashMap<>();
+    /** Whether staged and stagedForRemoval hold what their files hold, so
+     *  that reading them again can be skipped */
+    private static boolean stagedLoaded, stagedForRemovalLoaded;
+
+    /** Forgets both maps, so that they are read again on next use */
+    public static void reset() {
+        staged = new HashMap<>();
+        stagedForRemoval = new HashMap<>();
+        stagedLoaded = false;
+        stagedForRemovalLoaded = false;
+    }
 
-    /** adds file to Staging Area */
-    public static void addFileToStage(File file) {
-        Blob blob = new Blob(file);
-        String blobSha1 = blob.getID();
-        /** If the file is current version and it's staged, remove it from stage */
-        if (Repository.fileIsCurrentVersion(file, blobSha1)) {
-            if (staged.containsKey(file.getName())) {
-                removeFileFromStage(file, true);
+    /** adds the working files at PATHS to Staging Area, hashing and storing
+     *  them in parallel; a file that matches its version in TRACKED is
+     *  unstaged instead, and no added file stays staged for removal */
+    public static void addFilesToStage(Collection<String> paths, Map<String, String> tracked) {
+        Map<String, String> blobSha1s = paths.parallelStream()
+                .collect(Collectors.toMap(path -> path, path -> storeFile(path, tracked.get(path))));
+        for (String path : paths) {
+            String blobSha1 = blobSha1s.get(path);
+            if (blobSha1.equals(tracked.get(path))) {
+                staged.remove(path);
+            } else {
+                staged.put(path, blobSha1);
             }
-        } else {
-            staged.put(file.getName(), blobSha1);
+            stagedForRemoval.remove(path);
         }
     }
 
+    /** Returns the blob id of the working file PATH, taking it from the
+     *  working index when the index can vouch for its contents and storing
+     *  it otherwise, so that a changed file is read only once.  A vouched-for
+     *  file is stored only if it is not the TRACKEDSHA1 version and its blob
+     *  is missing; a blob already stored is freshened. */
+    private static String storeFile(String path, String trackedSha1) {
+        File file = Utils.join(Repository.CWD, path);
+        String blobSha1 = WorkingIndex.lookup(file, path);
+        if (blobSha1 != null && (blobSha1.equals(trackedSha1)
+                || ObjectStore.freshen(ObjectStore.Kind.BLOB, blobSha1))) {
+            return blobSha1;
+        }
+        blobSha1 = new Blob(file).getID();
+        WorkingIndex.record(file, path, blobSha1);
+        return blobSha1;
+    }
+
     public static void addFileToRemove(File file) {
-        stagedForRemoval.put(file.getName(), "");
+        stagedForRemoval.put(WorkingTree.path(file), "");
     }
     /** removes file from Staging Area */
     public static void removeFileFromStage(File file, boolean removal) {
@@ -33,7 +82,7 @@ public class StagingArea {
         } else {
             stageMap = staged;
         }
-        stageMap.remove(file.getName());
+        stageMap.remove(WorkingTree.path(file));
     }
 
     /** clears the Staging Area */
@@ -49,34 +98,84 @@ public class StagingArea {
 
     /** Saves the staged map to the file stagingArea */
     public static void saveStage() {
-        File saveFile = Utils.join(Repository.STAGE_DIR, "staged");
-        Utils.writeObject(saveFile, staged);
+        writeMap(Utils.join(Repository.STAGE_DIR, "staged"), staged, true);
+        stagedLoaded = true;
     }
 
-    /** Reads the staged map from the file stagingArea */
-    @SuppressWarnings("unchecked")
+    /** Reads the staged map from the file stagingArea, unless it is loaded */
     public static void readStage() {
         File saveFile = Utils.join(Repository.STAGE_DIR, "staged");
-        if (!saveFile.exists()) {
+        if (stagedLoaded || !saveFile.exists()) {
             return;
         }
-        staged = Utils.readObject(saveFile, HashMap.class);
+        staged = readMap(saveFile, true);
+        stagedLoaded = true;
     }
 
     /** Saves the stagedForRemoval map to the file stagingArea */
     public static void saveStageForRemoval() {
-        File saveFile = Utils.join(Repository.STAGE_DIR, "stagedForRemoval");
-        Utils.writeObject(saveFile, stagedForRemoval);
+        writeMap(Utils.join(Repository.STAGE_DIR, "stagedForRemoval"), stagedForRemoval, false);
+        stagedForRemovalLoaded = true;
     }
 
-    /** Reads the stagedForRemoval from the file stagingArea */
-    @SuppressWarnings("unchecked")
+    /** Reads the stagedForRemoval from the file stagingArea, unless it is loaded */
     public static void readStageForRemoval() {
         File saveFile = Utils.join(Repository.STAGE_DIR, "stagedForRemoval");
-        if (!saveFile.exists()) {
+        if (stagedForRemovalLoaded || !saveFile.exists()) {
             return;
         }
-        stagedForRemoval = Utils.readObject(saveFile, HashMap.class);
+        stagedForRemoval = readMap(saveFile, false);
+        stagedForRemovalLoaded = true;
+    }
+
+    /** Writes MAP to FILE when the command commits, with its values as raw
+     *  ids if WITHIDS and without them otherwise */
+    private static void writeMap(File file, HashMap<String, String> map, boolean withIds) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Transaction.open(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(map.size());
+            for (Map.Entry<String, String> entry : map.entrySet()) {
+                out.writeUTF(entry.getKey());
+                if (withIds) {
+                    out.write(Utils.toRawId(entry.getValue()));
+                }
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Reads the map written to FILE by writeMap with the given WITHIDS, or
+     *  Java-serialized to it */
+    @SuppressWarnings("unchecked")
+    private static HashMap<String, String> readMap(File file, boolean withIds) {
+        HashMap<String, String> result = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(file.toPath())))) {
+            in.mark(2);
+            if (in.readUnsignedShort() == SERIALIZED_MAGIC) {
+                return Utils.readObject(file, HashMap.class);
+            }
+            in.reset();
+            if (in.readInt() != MAGIC) {
+                throw Utils.error("Unknown stage format in %s.", file.getName());
+            }
+            int count = in.readInt();
+            byte[] rawId = new byte[HashEngine.rawIdLength()];
+            for (int i = 0; i < count; i += 1) {
+                String path = in.readUTF();
+                if (withIds) {
+                    in.readFully(rawId);
+                    result.put(path, Utils.toHexId(rawId, 0, rawId.length));
+                } else {
+                    result.put(path, "");
+                }
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return result;
     }
 
     public static boolean stageIsEmpty() {
@@ -106,6 +205,6 @@ public class StagingArea {
     }
 
     public static boolean contains(File file, boolean removal) {
-        return contains(file.getName(), removal);
+        return contains(WorkingTree.path(file), removal);
     }
 }
@@ -0,0 +1,123 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** The stats report: how the objects of the repository are stored, and how
+ *  each codec compresses and how fast it encodes and decodes them.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class Stats {
+    /** The most object bytes used to measure codec throughput. */
+    private static final int SAMPLE_LIMIT = 16 << 20;
+    /** The number of timed rounds per codec; the fastest is reported. */
+    private static final int ROUNDS = 3;
+
+    /** Prints the stats report for the current repository. */
+    static void print() {
+        Map<String, Integer> codecCounts = new TreeMap<>();
+        List<byte[]> sample = new ArrayList<>();
+        long storedBytes = 0, rawBytes = 0, sampleBytes = 0;
+        int objects = 0;
+        for (ObjectStore.Kind kind : ObjectStore.Kind.values()) {
+            for (String id : ObjectStore.list(kind)) {
+                objects += 1;
+                try (InputStream stored = ObjectStore.openStored(kind, id)) {
+                    storedBytes += stored.transferTo(OutputStream.nullOutputStream());
+                } catch (IOException excp) {
+                    throw new IllegalArgumentException(excp.getMessage());
+                }
+                codecCounts.merge(ObjectStore.storedCodec(kind, id).name(), 1, Integer::sum);
+                try (InputStream in = ObjectStore.open(kind, id)) {
+                    if (sampleBytes < SAMPLE_LIMIT) {
+                        byte[] part = in.readNBytes((int) (SAMPLE_LIMIT - sampleBytes));
+                        sample.add(part);
+                        sampleBytes += part.length;
+                        rawBytes += part.length;
+                    }
+                    rawBytes += in.transferTo(OutputStream.nullOutputStream());
+                } catch (IOException excp) {
+                    throw new IllegalArgumentException(excp.getMessage());
+                }
+            }
+        }
+        System.out.println("=== Objects ===");
+        System.out.println("objects: " + objects);
+        System.out.println("raw bytes: " + rawBytes);
+        System.out.println("stored bytes: " + storedBytes);
+        System.out.printf("ratio: %.3f%n", ratio(storedBytes, rawBytes));
+        for (Map.Entry<String, Integer> entry : codecCounts.entrySet()) {
+            System.out.println("stored with " + entry.getKey() + ": " + entry.getValue());
+        }
+        System.out.println();
+        System.out.println("=== Codecs ===");
+        System.out.printf("sample bytes: %d%n", sampleBytes);
+        System.out.printf("%-8s %8s %14s %14s%n", "codec", "ratio", "encode MB/s", "decode MB/s");
+        for (Codec codec : Codec.all()) {
+            measure(codec, sample, sampleBytes);
+        }
+        System.out.println();
+        System.out.println("=== Caches ===");
+        for (ObjectCache<?> cache : ObjectCache.all()) {
+            System.out.println(cache.summary());
+        }
+    }
+
+    /** Encodes and decodes SAMPLE, of SAMPLEBYTES bytes in all, with CODEC
+     *  and prints its ratio and throughput. */
+    private static void measure(Codec codec, List<byte[]> sample, long sampleBytes) {
+        long bestEncode = Long.MAX_VALUE, bestDecode = Long.MAX_VALUE, encodedBytes = 0;
+        try {
+            for (int round = 0; round <= ROUNDS; round += 1) {
+                List<byte[]> encoded = new ArrayList<>();
+                long start = System.nanoTime();
+                for (byte[] contents : sample) {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    try (OutputStream out = codec.encode(bytes)) {
+                        out.write(contents);
+                    }
+                    encoded.add(bytes.toByteArray());
+                }
+                long middle = System.nanoTime();
+                for (byte[] contents : encoded) {
+                    try (InputStream in = codec.decode(new ByteArrayInputStream(contents))) {
+                        in.transferTo(OutputStream.nullOutputStream());
+                    }
+                }
+                long end = System.nanoTime();
+                /* Round 0 only warms up the codec. */
+                if (round > 0) {
+                    bestEncode = Math.min(bestEncode, middle - start);
+                    bestDecode = Math.min(bestDecode, end - middle);
+                }
+                encodedBytes = 0;
+                for (byte[] contents : encoded) {
+                    encodedBytes += contents.length;
+                }
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        System.out.printf("%-8s %8.3f %14.1f %14.1f%n", codec.name(),
+                ratio(encodedBytes, sampleBytes),
+                throughput(sampleBytes, bestEncode), throughput(sampleBytes, bestDecode));
+    }
+
+    /** Returns STORED / RAW, or 1 if RAW is 0. */
+    private static double ratio(long stored, long raw) {
+        return raw == 0 ? 1.0 : (double) stored / raw;
+    }
+
+    /** Returns the throughput in MB/s of handling BYTES bytes in NANOS ns. */
+    static double throughput(long bytes, long nanos) {
+        return nanos <= 0 ? 0.0 : bytes / 1e6 / (nanos / 1e9);
+    }
+}
@@ -0,0 +1,171 @@
+package gitlet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Supplier;
+
+/** Merges two versions of a file, ours and theirs, that both changed a
+ *  common base version, line by line.
+ *
+ *  The changes each side made to the base are found by Diff over hashed
+ *  lines.  Changes of the two sides that overlap or touch form one region:
+ *  a region only one side changed takes that side's lines, a region both
+ *  sides changed alike takes those lines, and any other region is a
+ *  conflict, written with both sides' lines between conflict markers.  The
+ *  merged file is streamed out while the three versions are read front to
+ *  back, so only their line hashes are ever held in memory.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class ThreeWayMerge {
+    /** The markers opening, dividing and closing a conflict. */
+    private static final byte[] OURS = "<<<<<<< HEAD\n".getBytes(StandardCharsets.UTF_8),
+            DIVIDER = "=======\n".getBytes(StandardCharsets.UTF_8),
+            END = ">>>>>>>\n".getBytes(StandardCharsets.UTF_8);
+
+    /** Where the merged file is written. */
+    private final OutputStream out;
+    /** The hashed lines of ours and theirs. */
+    private final Diff.Lines oursLines, theirsLines;
+    /** Readers over the base, ours and theirs, kept at corresponding lines
+     *  outside changed regions. */
+    private final LineReader base, ours, theirs;
+    /** The number of conflicts written. */
+    private int conflicts;
+
+    private ThreeWayMerge(OutputStream out, Diff.Lines oursLines, Diff.Lines theirsLines,
+                          LineReader base, LineReader ours, LineReader theirs) {
+        this.out = out;
+        this.oursLines = oursLines;
+        this.theirsLines = theirsLines;
+        this.base = base;
+        this.ours = ours;
+        this.theirs = theirs;
+    }
+
+    /** Writes to OUT the merge of OURS and THEIRS from BASE, each opened by
+     *  its supplier or null if that version is absent, and returns the
+     *  number of conflicts written. */
+    static int merge(Supplier<InputStream> base, Supplier<InputStream> ours,
+                     Supplier<InputStream> theirs, OutputStream out) {
+        Diff.Lines baseLines = lines(base), oursLines = lines(ours), theirsLines = lines(theirs);
+        List<Diff.Change> oursChanges = Diff.changes(baseLines, oursLines);
+        List<Diff.Change> theirsChanges = Diff.changes(baseLines, theirsLines);
+        try (LineReader baseReader = new LineReader(base);
+             LineReader oursReader = new LineReader(ours);
+             LineReader theirsReader = new LineReader(theirs)) {
+            ThreeWayMerge merge = new ThreeWayMerge(out, oursLines, theirsLines,
+                    baseReader, oursReader, theirsReader);
+            merge.merge(oursChanges, theirsChanges, baseLines.size());
+            out.flush();
+            return merge.conflicts;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the hashed lines of the version opened by VERSION, or of an
+     *  empty version if it is null. */
+    private static Diff.Lines lines(Supplier<InputStream> version) {
+        return version == null ? Diff.Lines.empty() : Diff.Lines.read(version.get());
+    }
+
+    /** Writes the merge given the changes OURSCHANGES and THEIRSCHANGES each
+     *  side made to a base of BASESIZE lines. */
+    private void merge(List<Diff.Change> oursChanges, List<Diff.Change> theirsChanges,
+                       int baseSize) throws IOException {
+        int i = 0, j = 0;
+        while (i < oursChanges.size() || j < theirsChanges.size()) {
+            int firstOurs = i, firstTheirs = j;
+            int start, end;
+            if (j == theirsChanges.size()
+                    || (i < oursChanges.size()
+                        && oursChanges.get(i).oldStart <= theirsChanges.get(j).oldStart)) {
+                start = oursChanges.get(i).oldStart;
+                end = oursChanges.get(i).oldEnd;
+                i += 1;
+            } else {
+                start = theirsChanges.get(j).oldStart;
+                end = theirsChanges.get(j).oldEnd;
+                j += 1;
+            }
+            while (true) {
+                if (i < oursChanges.size() && oursChanges.get(i).oldStart <= end) {
+                    end = Math.max(end, oursChanges.get(i).oldEnd);
+                    i += 1;
+                } else if (j < theirsChanges.size() && theirsChanges.get(j).oldStart <= end) {
+                    end = Math.max(end, theirsChanges.get(j).oldEnd);
+                    j += 1;
+                } else {
+                    break;
+                }
+            }
+            copyUnchanged(start - base.line());
+            int oursEnd = ours.line() + (end - start)
+                    + growth(oursChanges.subList(firstOurs, i));
+            int theirsEnd = theirs.line() + (end - start)
+                    + growth(theirsChanges.subList(firstTheirs, j));
+            if (firstTheirs == j || sameLines(ours.line(), oursEnd, theirs.line(), theirsEnd)) {
+                copy(ours, oursEnd, false);
+                theirs.skipTo(theirsEnd);
+            } else if (firstOurs == i) {
+                copy(theirs, theirsEnd, false);
+                ours.skipTo(oursEnd);
+            } else {
+                out.write(OURS);
+                copy(ours, oursEnd, true);
+                out.write(DIVIDER);
+                copy(theirs, theirsEnd, true);
+                out.write(END);
+                conflicts += 1;
+            }
+            base.skipTo(end);
+        }
+        copyUnchanged(baseSize - base.line());
+    }
+
+    /** Returns the number of lines CHANGES add, less those they remove. */
+    private static int growth(List<Diff.Change> changes) {
+        int result = 0;
+        for (Diff.Change change : changes) {
+            result += (change.newEnd - change.newStart) - (change.oldEnd - change.oldStart);
+        }
+        return result;
+    }
+
+    /** Returns whether lines [OURSSTART, OURSEND) of ours are the same as
+     *  lines [THEIRSSTART, THEIRSEND) of theirs. */
+    private boolean sameLines(int oursStart, int oursEnd, int theirsStart, int theirsEnd) {
+        if (oursEnd - oursStart != theirsEnd - theirsStart) {
+            return false;
+        }
+        for (int k = 0; k < oursEnd - oursStart; k += 1) {
+            if (oursLines.hash(oursStart + k) != theirsLines.hash(theirsStart + k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Writes the next N lines, which all three versions share, from ours. */
+    private void copyUnchanged(int n) {
+        for (int k = 0; k < n; k += 1) {
+            ours.copy(out);
+        }
+        base.skip(n);
+        theirs.skip(n);
+    }
+
+    /** Writes the lines of READER up to line END, ending the last with a
+     *  newline if it lacks one and TERMINATE. */
+    private void copy(LineReader reader, int end, boolean terminate) throws IOException {
+        while (reader.line() < end) {
+            if (!reader.copy(out) && terminate) {
+                out.write('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** The refs and stage files a command writes or removes, replaced all at
+ *  once when the command succeeds.
+ *
+ *  Each file is written to a temporary file in .gitlet/tmp, and nothing
+ *  the repository reads changes until commit, which flushes the temporary
+ *  files to disk, renames each over the file it replaces, and flushes each
+ *  directory changed once.  New objects are moved into place as soon as
+ *  they are written, without waiting on the disk; commit flushes them and
+ *  their directories, all at once, before anything else, so a ref never
+ *  survives a crash that loses the objects it names.  Files only ever
+ *  appended to, like the commit-graph, are appended to by actions run
+ *  between the two, so they never name an object a crash can lose either.
+ *  A command that fails leaves every file as it was.  Setting core.fsync
+ *  to false skips the flushes, keeping only the renames.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class Transaction {
+    /** The temporary file holding the new contents of each file written, or
+     *  null for each file removed, in the order they were first written. */
+    private static final Map<File, File> PENDING = new LinkedHashMap<>();
+    /** The loose objects added since the last commit. */
+    private static final List<File> OBJECTS = new ArrayList<>();
+    /** The directories objects were added to since the last commit. */
+    private static final Set<File> OBJECT_DIRS = new LinkedHashSet<>();
+    /** The appends to run at the next commit, in order. */
+    private static final List<Runnable> APPENDS = new ArrayList<>();
+
+    /** Returns a stream writing the new contents of FILE, which replace its
+     *  old ones when the current command commits. */
+    static synchronized OutputStream open(File file) {
+        File dir = Utils.join(Repository.GITLET_DIR, "tmp");
+        dir.mkdir();
+        try {
+            File temp = File.createTempFile("tmp_ref_", null, dir);
+            discard(PENDING.put(file, temp));
+            return Files.newOutputStream(temp.toPath());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Writes CONTENTS to FILE when the current command commits. */
+    static void write(File file, String contents) {
+        try (OutputStream out = open(file)) {
+            out.write(contents.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Removes FILE when the current command commits, after the files
+     *  written before. */
+    static synchronized void delete(File file) {
+        discard(PENDING.put(file, null));
+    }
+
+    /** Returns whether FILE is to be removed when the current command
+     *  commits. */
+    static synchronized boolean removes(File file) {
+        return PENDING.containsKey(file) && PENDING.get(file) == null;
+    }
+
+    /** Records FILE, a new loose object or pack just moved into place, so
+     *  that it and its directory entries are flushed at the next commit,
+     *  before any file is removed. */
+    static void addObject(File file) {
+        File dir = file.getParentFile();
+        synchronized (Transaction.class) {
+            OBJECTS.add(file);
+            OBJECT_DIRS.add(dir);
+            OBJECT_DIRS.add(dir.getParentFile());
+        }
+    }
+
+    /** Runs APPEND when the current command commits, after the objects it
+     *  added are on disk and before any file it wrote is replaced.  APPEND
+     *  must flush what it writes to disk when fsync() holds. */
+    static synchronized void append(Runnable append) {
+        APPENDS.add(append);
+    }
+
+    /** Makes the files written by the current command durable and visible. */
+    static synchronized void commit() {
+        boolean fsync = fsync();
+        try {
+            if (fsync) {
+                OBJECTS.parallelStream().forEach(Transaction::force);
+                for (File dir : OBJECT_DIRS) {
+                    force(dir);
+                }
+            }
+            for (Runnable append : APPENDS) {
+                append.run();
+            }
+            if (fsync) {
+                for (File temp : PENDING.values()) {
+                    if (temp != null) {
+                        force(temp);
+                    }
+                }
+            }
+            Set<File> dirs = new LinkedHashSet<>();
+            for (Map.Entry<File, File> entry : PENDING.entrySet()) {
+                File file = entry.getKey();
+                if (entry.getValue() == null) {
+                    Files.deleteIfExists(file.toPath());
+                } else {
+                    Files.move(entry.getValue().toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                }
+                dirs.add(file.getParentFile());
+            }
+            PENDING.clear();
+            if (fsync) {
+                for (File dir : dirs) {
+                    force(dir);
+                }
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            abort();
+        }
+    }
+
+    /** Discards the files written since the last commit. */
+    static synchronized void abort() {
+        for (File temp : PENDING.values()) {
+            discard(temp);
+        }
+        PENDING.clear();
+        OBJECTS.clear();
+        OBJECT_DIRS.clear();
+        APPENDS.clear();
+    }
+
+    /** Deletes TEMP, a temporary file no longer needed, unless it is null. */
+    private static void discard(File temp) {
+        if (temp != null) {
+            temp.delete();
+        }
+    }
+
+    /** Returns whether commits flush what they write to disk. */
+    static boolean fsync() {
+        return Boolean.parseBoolean(Config.get("core.fsync", "true").trim());
+    }
+
+    /** Flushes the file or directory F to disk.  Directories that cannot be
+     *  opened, as on some platforms, are skipped. */
+    private static void force(File f) {
+        try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            channel.force(false);
+        } catch (IOException excp) {
+            if (!f.isDirectory()) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** A directory of a commit: the blob id of each file in it and the tree id
+ *  of each directory in it, by name.
+ *
+ *  Trees are stored in the object store under the hash of their contents,
+ *  so a commit that changes a few files writes new trees only for the
+ *  directories along the changed paths and shares every other tree with its
+ *  parent.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class Tree {
+    /** The byte marking a file entry. */
+    private static final byte FILE = 'b';
+    /** The byte marking a directory entry. */
+    private static final byte DIRECTORY = 't';
+
+    /** Recently read trees, shared by every thread. */
+    private static final ObjectCache<Tree> CACHE = new ObjectCache<>("trees", 16 << 20);
+    /** The estimated bytes a cached entry occupies besides its name. */
+    private static final int ENTRY_OVERHEAD = 160;
+
+    /** The blob id of each file, by name. */
+    private final TreeMap<String, String> files = new TreeMap<>();
+    /** The tree id of each directory, by name. */
+    private final TreeMap<String, String> directories = new TreeMap<>();
+
+    /** Reads the tree with the given ID from the object store, or from the
+     *  cache of recently read trees.  The tree returned must not be changed. */
+    static Tree read(String id) {
+        Tree cached = CACHE.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        byte[] data = ObjectStore.read(ObjectStore.Kind.TREE, id);
+        if (data == null) {
+            throw Utils.error("Missing tree %s.", id);
+        }
+        Tree tree = new Tree();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            int count = in.readInt();
+            byte[] rawId = new byte[HashEngine.rawIdLength()];
+            for (int i = 0; i < count; i += 1) {
+                byte type = in.readByte();
+                String name = in.readUTF();
+                in.readFully(rawId);
+                String entryId = Utils.toHexId(rawId, 0, rawId.length);
+                (type == DIRECTORY ? tree.directories : tree.files).put(name, entryId);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        CACHE.put(id, tree, data.length + ENTRY_OVERHEAD * (tree.files.size() + tree.directories.size()));
+        return tree;
+    }
+
+    /** Returns a copy of this tree, which may be changed. */
+    private Tree copy() {
+        Tree result = new Tree();
+        result.files.putAll(files);
+        result.directories.putAll(directories);
+        return result;
+    }
+
+    /** Writes this tree to the object store and returns its id. */
+    private String write() {
+        TreeMap<String, Byte> types = new TreeMap<>();
+        for (String name : files.keySet()) {
+            types.put(name, FILE);
+        }
+        for (String name : directories.keySet()) {
+            types.put(name, DIRECTORY);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(types.size());
+            for (Map.Entry<String, Byte> entry : types.entrySet()) {
+                String name = entry.getKey();
+                out.writeByte(entry.getValue());
+                out.writeUTF(name);
+                out.write(Utils.toRawId(entry.getValue() == FILE
+                        ? files.get(name) : directories.get(name)));
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        byte[] data = bytes.toByteArray();
+        String id = HashEngine.hash(data);
+        ObjectStore.write(ObjectStore.Kind.TREE, id, data);
+        return id;
+    }
+
+    /** Returns the blob id of each file of the tree with the given ID, by
+     *  its '/'-separated path. */
+    static HashMap<String, String> flatten(String id) {
+        HashMap<String, String> result = new HashMap<>();
+        flatten(id, "", result);
+        return result;
+    }
+
+    /** Adds each file of the tree with the given ID to RESULT, under its path
+     *  prefixed with PREFIX. */
+    private static void flatten(String id, String prefix, HashMap<String, String> result) {
+        Tree tree = read(id);
+        for (Map.Entry<String, String> entry : tree.files.entrySet()) {
+            result.put(prefix + entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<String, String> entry : tree.directories.entrySet()) {
+            flatten(entry.getValue(), prefix + entry.getKey() + "/", result);
+        }
+    }
+
+    /** Returns the blob id of the file at PATH in the tree with the given
+     *  ID, or null if there is none.  Reads only the trees along PATH. */
+    static String lookup(String id, String path) {
+        Tree tree = read(id);
+        int slash = path.indexOf('/');
+        while (slash >= 0) {
+            String directory = tree.directories.get(path.substring(0, slash));
+            if (directory == null) {
+                return null;
+            }
+            tree = read(directory);
+            path = path.substring(slash + 1);
+            slash = path.indexOf('/');
+        }
+        return tree.files.get(path);
+    }
+
+    /** Writes the tree holding the files of FILES, by path, and returns its id. */
+    static String write(Map<String, String> files) {
+        return update(null, files);
+    }
+
+    /** Writes the tree that results from applying CHANGES to the tree with
+     *  the given ID, or to an empty tree if ID is null, and returns its id.
+     *  CHANGES maps each changed path to its new blob id, or to null if the
+     *  file is removed.  Only the trees along changed paths are written. */
+    static String update(String id, Map<String, String> changes) {
+        String result = updateDirectory(id, changes);
+        return result == null ? new Tree().write() : result;
+    }
+
+    /** Returns the id of the tree that results from applying CHANGES to the
+     *  tree with the given ID, or null if the result is empty. */
+    private static String updateDirectory(String id, Map<String, String> changes) {
+        if (changes.isEmpty() && id != null) {
+            return id;
+        }
+        Tree tree = id == null ? new Tree() : read(id).copy();
+        Map<String, Map<String, String>> below = new TreeMap<>();
+        for (Map.Entry<String, String> entry : changes.entrySet()) {
+            String path = entry.getKey();
+            int slash = path.indexOf('/');
+            if (slash >= 0) {
+                below.computeIfAbsent(path.substring(0, slash), k -> new HashMap<>())
+                        .put(path.substring(slash + 1), entry.getValue());
+            } else if (entry.getValue() == null) {
+                tree.files.remove(path);
+            } else {
+                tree.files.put(path, entry.getValue());
+                tree.directories.remove(path);
+            }
+        }
+        for (Map.Entry<String, Map<String, String>> entry : below.entrySet()) {
+            String name = entry.getKey();
+            String directory = updateDirectory(tree.directories.get(name), entry.getValue());
+            if (directory == null) {
+                tree.directories.remove(name);
+            } else {
+                tree.directories.put(name, directory);
+                tree.files.remove(name);
+            }
+        }
+        if (tree.files.isEmpty() && tree.directories.isEmpty()) {
+            return null;
+        }
+        return tree.write();
+    }
+
+    /** Returns the blob id of each file directly in this tree, by name. */
+    Map<String, String> getFiles() {
+        return Collections.unmodifiableMap(files);
+    }
+
+    /** Returns the tree id of each directory directly in this tree, by name. */
+    Map<String, String> getDirectories() {
+        return Collections.unmodifiableMap(directories);
+    }
+}
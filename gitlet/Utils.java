@@ -1,6 +1,8 @@
 package gitlet;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -13,9 +15,7 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
-import java.util.Formatter;
 import java.util.List;
 
 
@@ -28,39 +28,28 @@ import java.util.List;
  */
 class Utils {
 
-    /** The length of a complete SHA-1 UID as a hexadecimal numeral. */
-    static final int UID_LENGTH = 40;
-
-    /* SHA-1 HASH VALUES. */
-
-    /** Returns the SHA-1 hash of the concatenation of VALS, which may
-     *  be any mixture of byte arrays and Strings. */
-    static String sha1(Object... vals) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-1");
-            for (Object val : vals) {
-                if (val instanceof byte[]) {
-                    md.update((byte[]) val);
-                } else if (val instanceof String) {
-                    md.update(((String) val).getBytes(StandardCharsets.UTF_8));
-                } else {
-                    throw new IllegalArgumentException("improper type to sha1");
-                }
+    /* HASH VALUES. */
+
+    /** Returns the hash, with the algorithm of the current repository, of
+     *  the concatenation of VALS, which may be any mixture of byte arrays
+     *  and Strings. */
+    static String hash(Object... vals) {
+        MessageDigest md = HashEngine.digest();
+        for (Object val : vals) {
+            if (val instanceof byte[]) {
+                md.update((byte[]) val);
+            } else if (val instanceof String) {
+                md.update(((String) val).getBytes(StandardCharsets.UTF_8));
+            } else {
+                throw new IllegalArgumentException("improper type to hash");
             }
-            Formatter result = new Formatter();
-            for (byte b : md.digest()) {
-                result.format("%02x", b);
-            }
-            return result.toString();
-        } catch (NoSuchAlgorithmException excp) {
-            throw new IllegalArgumentException("System does not support SHA-1");
         }
+        return HashEngine.hex(md.digest());
     }
 
-    /** Returns the SHA-1 hash of the concatenation of the strings in
-     *  VALS. */
-    static String sha1(List<Object> vals) {
-        return sha1(vals.toArray(new Object[vals.size()]));
+    /** Returns the hash of the concatenation of the strings in VALS. */
+    static String hash(List<Object> vals) {
+        return hash(vals.toArray(new Object[vals.size()]));
     }
 
     /* FILE DELETION */
@@ -142,7 +131,7 @@ class Utils {
                                                  Class<T> expectedClass) {
         try {
             ObjectInputStream in =
-                new ObjectInputStream(new FileInputStream(file));
+                new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
             T result = expectedClass.cast(in.readObject());
             in.close();
             return result;
@@ -157,6 +146,22 @@ class Utils {
         writeContents(file, serialize(obj));
     }
 
+    /** Return an object of type T deserialized from BYTES, casting it to
+     *  EXPECTEDCLASS.  Throws IllegalArgumentException in case of problems. */
+    static <T extends Serializable> T deserialize(byte[] bytes,
+                                                  Class<T> expectedClass) {
+        try {
+            ObjectInputStream in =
+                new ObjectInputStream(new ByteArrayInputStream(bytes));
+            T result = expectedClass.cast(in.readObject());
+            in.close();
+            return result;
+        } catch (IOException | ClassCastException
+                 | ClassNotFoundException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
     /* DIRECTORIES */
 
     /** Filter out all but plain files. */
@@ -237,8 +242,16 @@ class Utils {
         System.out.println();
     }
 
-    /** Return the sha1 hash of a serializable object */
-    static String createID(Serializable obj) {
-        return sha1(serialize(obj));
+    /* OBJECT IDS */
+
+    /** Returns the HashEngine.rawIdLength() bytes denoted by the hexadecimal UID ID. */
+    static byte[] toRawId(String id) {
+        return HashEngine.raw(id);
+    }
+
+    /** Returns the hexadecimal UID of the LENGTH raw id bytes in BYTES
+     *  starting at OFFSET. */
+    static String toHexId(byte[] bytes, int offset, int length) {
+        return HashEngine.hex(bytes, offset, length);
     }
 }
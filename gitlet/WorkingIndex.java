@@ -0,0 +1,212 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/** The working-tree index: the size, modification time, inode and last known
+ *  blob id of each working file gitlet has hashed, kept in .gitlet/index.
+ *
+ *  A file whose size, modification time and inode match its entry is taken
+ *  to still hash to the recorded blob id, so status and add need not read it
+ *  again.  As in Git, an entry whose modification time is not older than the
+ *  moment the index was last written is not trusted, since the file may have
+ *  changed again within the same clock tick.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class WorkingIndex {
+    /** "GLWI", the first four bytes of the index. */
+    private static final int MAGIC = 0x474c5749;
+    /** The version of the index format. */
+    private static final int VERSION = 1;
+
+    /** The stat data and blob id recorded for a working file. */
+    private static class Entry {
+        final long size;
+        final long mtime;
+        final long inode;
+        final String blobId;
+
+        Entry(long size, long mtime, long inode, String blobId) {
+            this.size = size;
+            this.mtime = mtime;
+            this.inode = inode;
+            this.blobId = blobId;
+        }
+    }
+
+    /** The entries by path, loaded on first use. */
+    private static HashMap<String, Entry> entries;
+    /** When the index was last written, in nanoseconds since the epoch. */
+    private static long writtenAt;
+    /** Whether entries has changed since it was loaded. */
+    private static boolean dirty;
+
+    /** Forgets the loaded entries, so that they are reloaded on next use. */
+    static synchronized void reset() {
+        entries = null;
+        dirty = false;
+    }
+
+    /** Deletes the index, so that every working file is hashed again. */
+    static synchronized void clear() {
+        file().delete();
+        reset();
+    }
+
+    /** Returns the file holding the index. */
+    private static File file() {
+        return Utils.join(Repository.GITLET_DIR, "index");
+    }
+
+    /** Loads the entries if they are not loaded yet. */
+    private static void load() {
+        if (entries != null) {
+            return;
+        }
+        entries = new HashMap<>();
+        writtenAt = 0;
+        if (!file().isFile()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(file().toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return;
+            }
+            writtenAt = in.readLong();
+            int count = in.readInt();
+            byte[] rawId = new byte[HashEngine.rawIdLength()];
+            for (int i = 0; i < count; i += 1) {
+                String path = in.readUTF();
+                long size = in.readLong();
+                long mtime = in.readLong();
+                long inode = in.readLong();
+                in.readFully(rawId);
+                entries.put(path, new Entry(size, mtime, inode,
+                        Utils.toHexId(rawId, 0, rawId.length)));
+            }
+        } catch (IOException excp) {
+            entries.clear();
+        }
+    }
+
+    /** Writes the entries to the index if they have changed. */
+    static synchronized void save() {
+        if (entries == null || !dirty) {
+            return;
+        }
+        File temp = Utils.join(Repository.GITLET_DIR, "index.tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(temp.toPath())))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()));
+            out.writeInt(entries.size());
+            for (HashMap.Entry<String, Entry> entry : entries.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue().size);
+                out.writeLong(entry.getValue().mtime);
+                out.writeLong(entry.getValue().inode);
+                out.write(Utils.toRawId(entry.getValue().blobId));
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        try {
+            Files.move(temp.toPath(), file().toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        dirty = false;
+    }
+
+    /** Returns the entry describing the current state of FILE with the given
+     *  BLOBID, or null if FILE cannot be read. */
+    private static Entry stat(File file, String blobId) {
+        Path path = file.toPath();
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            long inode = 0;
+            try {
+                inode = ((Number) Files.getAttribute(path, "unix:ino")).longValue();
+            } catch (UnsupportedOperationException | IllegalArgumentException excp) {
+                inode = attributes.fileKey() == null ? 0 : attributes.fileKey().hashCode();
+            }
+            return new Entry(attributes.size(),
+                    attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS), inode, blobId);
+        } catch (IOException excp) {
+            return null;
+        }
+    }
+
+    /** Returns the blob id of the working file FILE, known as PATH, reading
+     *  FILE only if its stat data differs from its entry.  Files are read
+     *  outside the lock, so that several threads may hash at once. */
+    static String hash(File file, String path) {
+        Entry current = stat(file, null);
+        String blobId = cached(path, current);
+        if (blobId != null) {
+            return blobId;
+        }
+        blobId = Blob.hash(file);
+        if (current != null) {
+            put(path, new Entry(current.size, current.mtime, current.inode, blobId));
+        }
+        return blobId;
+    }
+
+    /** Returns the blob id recorded for the working file FILE, known as PATH,
+     *  if its entry matches FILE's stat data and can be trusted, and null
+     *  otherwise.  FILE itself is never read. */
+    static String lookup(File file, String path) {
+        return cached(path, stat(file, null));
+    }
+
+    /** Returns the blob id recorded for PATH if its entry matches the stat
+     *  data CURRENT and can be trusted, and null otherwise. */
+    private static synchronized String cached(String path, Entry current) {
+        load();
+        Entry cached = entries.get(path);
+        if (cached != null && current != null && cached.size == current.size
+                && cached.mtime == current.mtime && cached.inode == current.inode
+                && cached.mtime < writtenAt) {
+            return cached.blobId;
+        }
+        return null;
+    }
+
+    /** Sets the entry of PATH to ENTRY. */
+    private static synchronized void put(String path, Entry entry) {
+        load();
+        entries.put(path, entry);
+        dirty = true;
+    }
+
+    /** Records that the working file FILE, known as PATH, holds the blob
+     *  with the given BLOBID. */
+    static void record(File file, String path, String blobId) {
+        Entry current = stat(file, blobId);
+        if (current != null) {
+            put(path, current);
+        }
+    }
+
+    /** Forgets the working file known as PATH. */
+    static synchronized void forget(String path) {
+        load();
+        if (entries.remove(path) != null) {
+            dirty = true;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.TreeSet;
+
+/** The files of the working directory, named by their path relative to it
+ *  with '/' between directories, as commits and the staging area name them.
+ *
+ *  @author Shiang Lin, Ian Huang
+ */
+class WorkingTree {
+    /** Returns the path of FILE relative to the working directory. */
+    static String path(File file) {
+        Path root = Repository.CWD.toPath().toAbsolutePath().normalize();
+        Path relative = root.relativize(file.toPath().toAbsolutePath().normalize());
+        return relative.toString().replace(File.separatorChar, '/');
+    }
+
+    /** Returns the paths of all plain files under the working directory,
+     *  outside .gitlet, in lexicographic order. */
+    static TreeSet<String> files() {
+        return files(Repository.CWD);
+    }
+
+    /** Returns the paths of all plain files under DIR, outside .gitlet, in
+     *  lexicographic order. */
+    static TreeSet<String> files(File dir) {
+        TreeSet<String> result = new TreeSet<>();
+        Path gitlet = Repository.GITLET_DIR.toPath().toAbsolutePath().normalize();
+        try {
+            Files.walkFileTree(dir.toPath(), new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path subdir, BasicFileAttributes attrs) {
+                    if (subdir.toAbsolutePath().normalize().equals(gitlet)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile()) {
+                        result.add(path(file.toFile()));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return result;
+    }
+
+    /** Returns the paths named by SPEC: the file it names, every file under
+     *  the directory it names, or, if it holds a glob character, every file
+     *  whose path matches it as a glob.  Returns an empty set if nothing
+     *  matches, or if SPEC names a file outside the working directory or
+     *  inside .gitlet. */
+    static TreeSet<String> expand(String spec) {
+        if (isGlob(spec)) {
+            PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + spec);
+            TreeSet<String> result = new TreeSet<>();
+            for (String path : files()) {
+                if (matcher.matches(Path.of(path))) {
+                    result.add(path);
+                }
+            }
+            return result;
+        }
+        TreeSet<String> result = new TreeSet<>();
+        File file = resolve(spec);
+        if (file == null) {
+            return result;
+        }
+        if (file.isDirectory()) {
+            return files(file);
+        }
+        if (file.isFile()) {
+            result.add(path(file));
+        }
+        return result;
+    }
+
+    /** Returns the file at SPEC, a path relative to the working directory,
+     *  or null if it lies outside the working directory or inside .gitlet. */
+    private static File resolve(String spec) {
+        Path root = Repository.CWD.toPath().toAbsolutePath().normalize();
+        Path gitlet = Repository.GITLET_DIR.toPath().toAbsolutePath().normalize();
+        Path target = root.resolve(spec).normalize();
+        if (!target.startsWith(root) || target.startsWith(gitlet)) {
+            return null;
+        }
+        return target.toFile();
+    }
+
+    /** Returns whether SPEC holds a glob character. */
+    private static boolean isGlob(String spec) {
+        for (int i = 0; i < spec.length(); i += 1) {
+            if ("*?[{".indexOf(spec.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Deletes the working file PATH, if it exists, and then each directory
+     *  above it that is left empty. */
+    static void delete(String path) {
+        File file = Utils.join(Repository.CWD, path);
+        if (file.exists()) {
+            file.delete();
+        }
+        File dir = file.getParentFile();
+        while (dir != null && !dir.equals(Repository.CWD) && dir.delete()) {
+            dir = dir.getParentFile();
+        }
+    }
+}